@@ -22,7 +22,9 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.JavaCacheSerializer;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 
 /**
@@ -43,6 +45,12 @@ public @interface CacheNamespace {
 
   boolean readWrite() default true;
 
+  /**
+   * Serializer used to copy values when {@link #readWrite()} is true.
+   * @since 3.5.2
+   */
+  Class<? extends CacheSerializer> serializer() default JavaCacheSerializer.class;
+
   boolean blocking() default false;
 
   /**
@@ -33,4 +33,19 @@ public @interface Many {
 
   FetchType fetchType() default FetchType.DEFAULT;
 
+  /**
+   * Maximum number of parents resolved by one query. A positive value batches lazy and eager loads as well; 0 only
+   * batches {@link FetchType#BATCH}, with the {@code defaultBatchFetchSize} setting.
+   *
+   * @since 3.5.2
+   */
+  int batchSize() default 0;
+
+  /**
+   * Columns of the nested select that hold the parent key when the nested select is batched.
+   *
+   * @since 3.5.2
+   */
+  String foreignColumn() default "";
+
 }
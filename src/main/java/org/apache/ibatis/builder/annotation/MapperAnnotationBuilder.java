@@ -184,7 +184,8 @@ public class MapperAnnotationBuilder {
    */
   private void parsePendingMethods() {
     Collection<MethodResolver> incompleteMethods = configuration.getIncompleteMethods();
-    synchronized (incompleteMethods) {
+    configuration.getIncompleteElementsLock().lock();
+    try {
       Iterator<MethodResolver> iter = incompleteMethods.iterator();
       while (iter.hasNext()) {
         try {
@@ -194,6 +195,8 @@ public class MapperAnnotationBuilder {
           // This method is still missing a resource
         }
       }
+    } finally {
+      configuration.getIncompleteElementsLock().unlock();
     }
   }
 
@@ -244,7 +247,7 @@ public class MapperAnnotationBuilder {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
       Properties props = convertToProperties(cacheDomain.properties());
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.serializer(), cacheDomain.blocking(), props);
     }
   }
 
@@ -693,8 +696,9 @@ public class MapperAnnotationBuilder {
           typeHandler,
           flags,
           null,
-          null,
-          isLazy(result));
+          nullOrEmpty(foreignColumn(result)),
+          isLazy(result),
+          batchSize(result));
       resultMappings.add(resultMapping);
     }
   }
@@ -713,13 +717,30 @@ public class MapperAnnotationBuilder {
   private boolean isLazy(Result result) {
     boolean isLazy = configuration.isLazyLoadingEnabled();
     if (result.one().select().length() > 0 && FetchType.DEFAULT != result.one().fetchType()) {
-      isLazy = result.one().fetchType() == FetchType.LAZY;
+      isLazy = result.one().fetchType() == FetchType.LAZY || result.one().fetchType() == FetchType.BATCH;
     } else if (result.many().select().length() > 0 && FetchType.DEFAULT != result.many().fetchType()) {
-      isLazy = result.many().fetchType() == FetchType.LAZY;
+      isLazy = result.many().fetchType() == FetchType.LAZY || result.many().fetchType() == FetchType.BATCH;
     }
     return isLazy;
   }
 
+  private int batchSize(Result result) {
+    if (result.one().select().length() > 0) {
+      return batchSize(result.one().fetchType(), result.one().batchSize());
+    } else if (result.many().select().length() > 0) {
+      return batchSize(result.many().fetchType(), result.many().batchSize());
+    }
+    return 0;
+  }
+
+  private int batchSize(FetchType fetchType, int batchSize) {
+    return batchSize == 0 && fetchType == FetchType.BATCH ? configuration.getDefaultBatchFetchSize() : batchSize;
+  }
+
+  private String foreignColumn(Result result) {
+    return result.one().select().length() > 0 ? result.one().foreignColumn() : result.many().foreignColumn();
+  }
+
   private boolean hasNestedSelect(Result result) {
     if (result.one().select().length() > 0 && result.many().select().length() > 0) {
       throw new BuilderException("Cannot use both @One and @Many annotations in the same @Result");
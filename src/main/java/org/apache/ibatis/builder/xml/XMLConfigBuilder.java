@@ -18,6 +18,7 @@ package org.apache.ibatis.builder.xml;
 import java.io.InputStream;
 import java.io.Reader;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
@@ -150,6 +151,10 @@ public class XMLConfigBuilder extends BaseBuilder {
       objectWrapperFactoryElement(root.evalNode("objectWrapperFactory"));
       // 反射工厂
       reflectorFactoryElement(root.evalNode("reflectorFactory"));
+      // 返回 CompletableFuture 的映射器方法所使用的线程池（新增于 3.5.2）
+      configuration.setAsyncMapperExecutor(newExecutor(settings.getProperty("asyncMapperExecutor")));
+      // 并行行映射时创建和填充结果对象所使用的线程池（新增于 3.5.2）
+      configuration.setParallelRowMappingExecutor(newExecutor(settings.getProperty("parallelRowMappingExecutor")));
       settingsElement(settings);
       // read it after objectFactory and objectWrapperFactory issue #631
       // 环境变量
@@ -199,6 +204,11 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setLogImpl(logImpl);
   }
 
+  private Executor newExecutor(String alias) throws Exception {
+    Class<? extends Executor> type = resolveClass(alias);
+    return type == null ? null : type.newInstance();
+  }
+
   private void typeAliasesElement(XNode parent) {
     if (parent != null) {
       for (XNode child : parent.getChildren()) {
@@ -391,6 +401,8 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
     // 开启时，任一方法的调用都会加载该对象的所有延迟加载属性。 否则，每个延迟加载属性会按需加载（参考 lazyLoadTriggerMethods),默认为false
     configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), false));
+    // fetchType="batch" 的关联未指定 batchSize 时，一次嵌套查询合并加载的父对象数量，默认 50（新增于 3.5.2）
+    configuration.setDefaultBatchFetchSize(integerValueOf(props.getProperty("defaultBatchFetchSize"), 50));
     // 是否允许单个语句返回多结果集（需要数据库驱动支持） 这个一般都必须是允许的，比如说查询分页数据
     configuration.setMultipleResultSetsEnabled(booleanValueOf(props.getProperty("multipleResultSetsEnabled"), true));
     // 使用列标签代替列名。实际表现依赖于数据库驱动，具体可参考数据库驱动的相关文档，或通过对比测试来观察。
@@ -402,6 +414,14 @@ public class XMLConfigBuilder extends BaseBuilder {
     // REUSE 执行器会重用预处理语句（PreparedStatement）；
     // BATCH 执行器不仅重用语句还会执行批量更新
     configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
+    // BATCH 执行器单个批次的最大行数与参数的估算字节数，达到任一阈值即自动执行所有批次，0 表示不限制（新增于 3.5.2）
+    configuration.setMaxBatchSize(integerValueOf(props.getProperty("maxBatchSize"), 0));
+    configuration.setMaxBatchBytes(Long.valueOf(props.getProperty("maxBatchBytes", "0")));
+    // BATCH 执行器为每个语句和 SQL 各保留一个批次，交替执行的插入不会打断彼此的批次。默认不开启（新增于 3.5.2）
+    configuration.setBatchGroupingEnabled(booleanValueOf(props.getProperty("batchGroupingEnabled"), false));
+    // BATCH 执行器将同一 INSERT ... VALUES (...) 语句的多行合并为多值插入语句发送，每条语句的参数个数不超过 batchInsertMaxParameters（新增于 3.5.2）
+    configuration.setBatchInsertRewriteEnabled(booleanValueOf(props.getProperty("batchInsertRewriteEnabled"), false));
+    configuration.setBatchInsertMaxParameters(integerValueOf(props.getProperty("batchInsertMaxParameters"), 2000));
     // 设置超时时间，它决定数据库驱动等待数据库响应的秒数。
     configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
     // 为驱动的结果集获取数量（fetchSize）设置一个建议值。此参数只可以在查询设置中被覆盖
@@ -437,6 +457,18 @@ public class XMLConfigBuilder extends BaseBuilder {
     // 请注意，它也适用于嵌套的结果集（如集合或关联）。（新增于 3.4.2）
     // 默认是不开启，这个在做聚合查询的时候可能会遇到,默认返回null比较好
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    // 是否为简单的结果映射预编译行映射器，逐行直接调用 TypeHandler 与 setter 的 MethodHandle，
+    // 跳过 MetaObject 的属性解析。默认不开启（新增于 3.5.2）
+    configuration.setCompiledRowMappingEnabled(booleanValueOf(props.getProperty("compiledRowMappingEnabled"), false));
+    // 跨语句缓存的结果映射计划数量（按 ResultMap id + 结果集列签名），0 表示不缓存（新增于 3.5.2）
+    configuration.setAutoMappingPlanCacheSize(integerValueOf(props.getProperty("autoMappingPlanCacheSize"), 1024));
+    // 通过 Cursor 或自定义 ResultHandler 读取嵌套结果映射时，按 resultOrdered=true 的方式流式处理：
+    // 根记录的键一变化就交出聚合对象并清理已完成的行，内存占用不随结果集增长。默认不开启（新增于 3.5.2）
+    configuration.setNestedResultStreamingEnabled(booleanValueOf(props.getProperty("nestedResultStreamingEnabled"), false));
+    // 简单结果映射的大结果集并行映射：JDBC 线程仍顺序读取列值，对象创建和 setter 调用按批交给 ForkJoin 公共池，
+    // 结果按原顺序交给 ResultHandler。默认不开启，批大小默认 512（新增于 3.5.2）
+    configuration.setParallelRowMappingEnabled(booleanValueOf(props.getProperty("parallelRowMappingEnabled"), false));
+    configuration.setParallelRowMappingBatchSize(integerValueOf(props.getProperty("parallelRowMappingBatchSize"), 512));
     // 指定 MyBatis 增加到日志名称的前缀。
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     // 指定一个提供 Configuration 实例的类。
@@ -16,8 +16,7 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 import org.apache.ibatis.reflection.ArrayUtil;
@@ -26,49 +25,78 @@ import org.apache.ibatis.reflection.ArrayUtil;
  * @author Clinton Begin
  *
  * 缓存 key
+ * <p>
+ * The updates are kept in a flat array sized up front by {@link #CacheKey(int)}; {@code int} and {@code long} updates
+ * (boxed or not) are stored unboxed in a parallel array, so building a key allocates little more than the key itself.
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -4146512960297355734L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
   private static final int DEFAULT_MULTIPLYER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
 
   private final int multiplier;
   private int hashcode;
   private long checksum;
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updateList;
+  private long[] primitiveList;
 
   public CacheKey() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedUpdateCount the number of updates the key will probably receive
+   * @since 3.5.2
+   */
+  public CacheKey(int expectedUpdateCount) {
     this.hashcode = DEFAULT_HASHCODE;
     this.multiplier = DEFAULT_MULTIPLYER;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = new Object[Math.max(expectedUpdateCount, 1)];
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
-
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
+    if (object instanceof Integer) {
+      update(((Integer) object).intValue());
+    } else if (object instanceof Long) {
+      update(((Long) object).longValue());
+    } else {
+      add(object == null ? 1 : ArrayUtil.hashCode(object), object, 0L);
+    }
+  }
 
-    hashcode = multiplier * hashcode + baseHashCode;
+  /**
+   * Same as {@code update(Integer.valueOf(value))}, without boxing.
+   *
+   * @since 3.5.2
+   */
+  public void update(int value) {
+    add(Integer.hashCode(value), Primitive.INT, value);
+  }
 
-    updateList.add(object);
+  /**
+   * Same as {@code update(Long.valueOf(value))}, without boxing.
+   *
+   * @since 3.5.2
+   */
+  public void update(long value) {
+    add(Long.hashCode(value), Primitive.LONG, value);
   }
 
   public void updateAll(Object[] objects) {
@@ -77,6 +105,27 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  private void add(int baseHashCode, Object object, long primitive) {
+    if (count == updateList.length) {
+      updateList = Arrays.copyOf(updateList, count * 2);
+    }
+    if (object instanceof Primitive) {
+      if (primitiveList == null) {
+        primitiveList = new long[updateList.length];
+      } else if (primitiveList.length < updateList.length) {
+        primitiveList = Arrays.copyOf(primitiveList, updateList.length);
+      }
+      primitiveList[count] = primitive;
+    }
+    updateList[count] = object;
+
+    count++;
+    checksum += baseHashCode;
+    baseHashCode *= count;
+
+    hashcode = multiplier * hashcode + baseHashCode;
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -98,10 +147,14 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
+      if (thisObject instanceof Primitive) {
+        if (thisObject != thatObject || primitiveList[i] != cacheKey.primitiveList[i]) {
+          return false;
+        }
+      } else if (!ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
@@ -118,15 +171,25 @@ public class CacheKey implements Cloneable, Serializable {
     StringJoiner returnValue = new StringJoiner(":");
     returnValue.add(String.valueOf(hashcode));
     returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    for (int i = 0; i < count; i++) {
+      returnValue.add(updateList[i] instanceof Primitive ? String.valueOf(primitiveList[i]) : ArrayUtil.toString(updateList[i]));
+    }
     return returnValue.toString();
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    // leave room for the update that usually follows (see combineKeys)
+    clonedCacheKey.updateList = Arrays.copyOf(updateList, count + 1);
+    if (primitiveList != null) {
+      clonedCacheKey.primitiveList = Arrays.copyOf(primitiveList, count + 1);
+    }
     return clonedCacheKey;
   }
 
+  private enum Primitive {
+    INT, LONG
+  }
+
 }
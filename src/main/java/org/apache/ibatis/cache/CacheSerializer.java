@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Converts cached values to bytes and back for caches that store copies, such as
+ * {@link org.apache.ibatis.cache.decorators.SerializedCache} (read-write caches).
+ * <p>
+ * Implementations need a public no-args constructor and must be thread-safe.
+ *
+ * @since 3.5.2
+ */
+public interface CacheSerializer {
+
+  /**
+   * @param value The value to serialize, may be null
+   * @return The serialized value
+   */
+  byte[] serialize(Object value);
+
+  /**
+   * @param data Bytes returned by {@link #serialize(Object)}
+   * @return A copy of the serialized value
+   */
+  Object deserialize(byte[] data);
+
+}
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Estimates the heap retained by a cached value, so that a {@link org.apache.ibatis.cache.decorators.WeightedCache}
+ * can bound a cache by memory instead of by number of entries.
+ * <p>
+ * Implementations need a public no-args constructor to be configured with
+ * {@code <property name="weigher" value="..."/>}. They are called concurrently and must be fast, as they run on
+ * every put.
+ *
+ * @since 3.5.2
+ */
+public interface CacheWeigher {
+
+  /**
+   * @param key The key
+   * @param value The cached value, may be null
+   * @return The estimated weight of the entry in bytes, not negative
+   */
+  long weigh(Object key, Object value);
+
+}
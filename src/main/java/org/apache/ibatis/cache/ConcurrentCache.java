@@ -0,0 +1,29 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Marker for caches that are safe for concurrent use without external locking.
+ * <p>
+ * A decorator implementing this interface is thread-safe as long as the cache it wraps is. When every cache of a
+ * second-level cache chain is a {@code ConcurrentCache}, the chain is not wrapped in a
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache}, so reads are not serialized.
+ *
+ * @since 3.5.2
+ */
+public interface ConcurrentCache extends Cache {
+
+}
@@ -17,19 +17,26 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ConcurrentCache;
 
 /**
  * FIFO (first in, first out) cache decorator.
+ * <p>
+ * Reads go straight to the delegate; only writes are serialized, so the decorator is thread-safe on top of a
+ * concurrent cache.
  *
  * @author Clinton Begin
  */
-public class FifoCache implements Cache {
+public class FifoCache implements ConcurrentCache {
 
   private final Cache delegate;
   private final Deque<Object> keyList;
+  private final Lock lock = new ReentrantLock();
   private int size;
 
   public FifoCache(Cache delegate) {
@@ -54,8 +61,13 @@ public class FifoCache implements Cache {
 
   @Override
   public void putObject(Object key, Object value) {
-    cycleKeyList(key);
-    delegate.putObject(key, value);
+    lock.lock();
+    try {
+      cycleKeyList(key);
+      delegate.putObject(key, value);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -70,8 +82,13 @@ public class FifoCache implements Cache {
 
   @Override
   public void clear() {
-    delegate.clear();
-    keyList.clear();
+    lock.lock();
+    try {
+      delegate.clear();
+      keyList.clear();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -17,20 +17,27 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ConcurrentCache;
 
 /**
  * Lru (least recently used) cache decorator.
  *
  * lru缓存装饰器
+ * <p>
+ * Writes are serialized, reads are not: a read only records the access if the lock is free, so under contention the
+ * eviction order is an approximation of LRU and the decorator is thread-safe on top of a concurrent cache.
  *
  * @author Clinton Begin
  */
-public class LruCache implements Cache {
+public class LruCache implements ConcurrentCache {
 
   private final Cache delegate;
+  private final Lock lock = new ReentrantLock();
   private Map<Object, Object> keyMap;
   private Object eldestKey;
 
@@ -50,7 +57,16 @@ public class LruCache implements Cache {
   }
 
   public void setSize(final int size) {
-    keyMap = new LinkedHashMap<Object, Object>(size, .75F, true) {
+    lock.lock();
+    try {
+      keyMap = newKeyMap(size);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Map<Object, Object> newKeyMap(final int size) {
+    return new LinkedHashMap<Object, Object>(size, .75F, true) {
       private static final long serialVersionUID = 4267176411845948333L;
 
       @Override
@@ -66,25 +82,46 @@ public class LruCache implements Cache {
 
   @Override
   public void putObject(Object key, Object value) {
-    delegate.putObject(key, value);
-    cycleKeyList(key);
+    lock.lock();
+    try {
+      delegate.putObject(key, value);
+      cycleKeyList(key);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public Object getObject(Object key) {
-    keyMap.get(key); //touch
+    if (lock.tryLock()) {
+      try {
+        keyMap.get(key); //touch
+      } finally {
+        lock.unlock();
+      }
+    }
     return delegate.getObject(key);
   }
 
   @Override
   public Object removeObject(Object key) {
-    return delegate.removeObject(key);
+    lock.lock();
+    try {
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public void clear() {
-    delegate.clear();
-    keyMap.clear();
+    lock.lock();
+    try {
+      delegate.clear();
+      keyMap.clear();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ConcurrentCache;
+
+/**
+ * W-TinyLFU cache decorator.
+ * <p>
+ * New entries enter a small LRU admission window (1% of the size). An entry leaving the window only replaces the
+ * eldest entry of the main area if a frequency sketch says it has been requested more often, so a scan of keys that
+ * are read once does not flush the hot entries. The main area is a segmented LRU: entries hit again while on
+ * probation move to the protected segment (80% of the main area).
+ * <p>
+ * Reads go straight to the delegate and record their frequency without locking; the recency update is skipped when
+ * another thread holds the lock. Access frequencies survive {@link #clear()}, so hot statements are recognized again
+ * right after the namespace is flushed.
+ *
+ * @since 3.5.2
+ */
+public class TinyLfuCache implements ConcurrentCache {
+
+  private final Cache delegate;
+  private final Lock lock = new ReentrantLock();
+  private final Map<Object, Boolean> window = new LinkedHashMap<>(16, .75F, true);
+  private final Map<Object, Boolean> probation = new LinkedHashMap<>(16, .75F, true);
+  private final Map<Object, Boolean> protectedSegment = new LinkedHashMap<>(16, .75F, true);
+  private volatile FrequencySketch sketch;
+  private int windowMaximum;
+  private int mainMaximum;
+  private int protectedMaximum;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setSize(int size) {
+    lock.lock();
+    try {
+      int maximum = Math.max(size, 1);
+      windowMaximum = Math.max(1, maximum / 100);
+      mainMaximum = maximum - windowMaximum;
+      protectedMaximum = mainMaximum * 4 / 5;
+      sketch = new FrequencySketch(maximum);
+      evict();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    lock.lock();
+    try {
+      delegate.putObject(key, value);
+      if (!onAccess(key)) {
+        window.put(key, Boolean.TRUE);
+        evict();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    sketch.increment(key);
+    if (lock.tryLock()) {
+      try {
+        onAccess(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      window.remove(key);
+      probation.remove(key);
+      protectedSegment.remove(key);
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      delegate.clear();
+      window.clear();
+      probation.clear();
+      protectedSegment.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private boolean onAccess(Object key) {
+    if (window.get(key) != null || protectedSegment.get(key) != null) {
+      return true;
+    }
+    if (probation.remove(key) == null) {
+      return false;
+    }
+    protectedSegment.put(key, Boolean.TRUE);
+    if (protectedSegment.size() > protectedMaximum) {
+      Object demoted = eldest(protectedSegment);
+      protectedSegment.remove(demoted);
+      probation.put(demoted, Boolean.TRUE);
+    }
+    return true;
+  }
+
+  private void evict() {
+    while (window.size() > windowMaximum) {
+      Object candidate = eldest(window);
+      window.remove(candidate);
+      admit(candidate);
+    }
+    while (probation.size() + protectedSegment.size() > mainMaximum) {
+      Map<Object, Boolean> segment = probation.isEmpty() ? protectedSegment : probation;
+      Object victim = eldest(segment);
+      segment.remove(victim);
+      delegate.removeObject(victim);
+    }
+  }
+
+  private void admit(Object candidate) {
+    if (probation.size() + protectedSegment.size() < mainMaximum) {
+      probation.put(candidate, Boolean.TRUE);
+      return;
+    }
+    Map<Object, Boolean> segment = probation.isEmpty() ? protectedSegment : probation;
+    if (segment.isEmpty()) {
+      delegate.removeObject(candidate);
+      return;
+    }
+    Object victim = eldest(segment);
+    if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+      segment.remove(victim);
+      delegate.removeObject(victim);
+      probation.put(candidate, Boolean.TRUE);
+    } else {
+      delegate.removeObject(candidate);
+    }
+  }
+
+  private static Object eldest(Map<Object, Boolean> segment) {
+    return segment.keySet().iterator().next();
+  }
+
+}
@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheWeigher;
+import org.apache.ibatis.cache.ConcurrentCache;
+
+/**
+ * Memory-bounded LRU cache decorator.
+ * <p>
+ * Every entry counts against {@code maximumWeight} (bytes, 64MB by default) with the weight returned by the
+ * configured {@link CacheWeigher}. The default weigher multiplies the number of rows of the value (the size of a
+ * collection or array, otherwise one) by {@code rowWeight} (512 bytes by default). In a read/write cache the
+ * values reach this decorator already serialized by {@link SerializedCache}, so a {@code byte[]} is weighed by its
+ * length instead. Least recently used entries are evicted until the total fits again; a value heavier than the whole
+ * budget is not cached.
+ * <p>
+ * Like {@link LruCache}, writes are serialized and reads only record the access when the lock is free.
+ *
+ * @since 3.5.2
+ */
+public class WeightedCache implements ConcurrentCache {
+
+  private final Cache delegate;
+  private final Lock lock = new ReentrantLock();
+  private final Map<Object, Long> weights = new LinkedHashMap<>(16, .75F, true);
+  private long maximumWeight = 64L * 1024 * 1024;
+  private long rowWeight = 512;
+  private CacheWeigher weigher;
+  private long totalWeight;
+
+  public WeightedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setMaximumWeight(long maximumWeight) {
+    lock.lock();
+    try {
+      this.maximumWeight = maximumWeight;
+      evict();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void setRowWeight(long rowWeight) {
+    this.rowWeight = rowWeight;
+  }
+
+  public void setWeigher(CacheWeigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * @return The sum of the weights of the cached entries
+   */
+  public long getTotalWeight() {
+    lock.lock();
+    try {
+      return totalWeight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long weight = weigh(key, value);
+    lock.lock();
+    try {
+      Long previous = weights.remove(key);
+      if (previous != null) {
+        totalWeight -= previous;
+      }
+      if (weight > maximumWeight) {
+        delegate.removeObject(key);
+        return;
+      }
+      delegate.putObject(key, value);
+      weights.put(key, weight);
+      totalWeight += weight;
+      evict();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    if (lock.tryLock()) {
+      try {
+        weights.get(key); //touch
+      } finally {
+        lock.unlock();
+      }
+    }
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      Long weight = weights.remove(key);
+      if (weight != null) {
+        totalWeight -= weight;
+      }
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      delegate.clear();
+      weights.clear();
+      totalWeight = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private long weigh(Object key, Object value) {
+    long weight;
+    if (weigher != null) {
+      weight = weigher.weigh(key, value);
+    } else if (value instanceof byte[]) {
+      weight = Math.max(1, ((byte[]) value).length);
+    } else if (value instanceof Collection) {
+      weight = Math.max(1, ((Collection<?>) value).size()) * rowWeight;
+    } else if (value != null && value.getClass().isArray()) {
+      weight = Math.max(1, Array.getLength(value)) * rowWeight;
+    } else {
+      weight = rowWeight;
+    }
+    if (weight < 0) {
+      throw new CacheException("Negative weight " + weight + " returned by " + weigher + " for key " + key);
+    }
+    return weight;
+  }
+
+  private void evict() {
+    while (totalWeight > maximumWeight && !weights.isEmpty()) {
+      Map.Entry<Object, Long> eldest = weights.entrySet().iterator().next();
+      weights.remove(eldest.getKey());
+      totalWeight -= eldest.getValue();
+      delegate.removeObject(eldest.getKey());
+    }
+  }
+
+}
@@ -0,0 +1,621 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.Externalizable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Compact binary {@link CacheSerializer}, faster and smaller than Java serialization for typical query results.
+ * <p>
+ * Values are written as a one byte tag followed by their content. Boxed primitives, strings, numbers, dates,
+ * byte arrays and the {@code ArrayList}, {@code HashMap}, {@code LinkedHashMap} and {@code HashSet} collections are
+ * written without any class information. Result objects are written as their class name, once per value, followed by
+ * their fields in declaration order; primitive fields are written without tag. Result objects are created with their
+ * no-args constructor, so transient fields keep their initial value. Shared and circular references are
+ * preserved. Objects that cannot be handled this way (no no-args constructor, custom serialization methods, lazy
+ * loading proxies, other JDK types) are embedded using Java serialization.
+ * <p>
+ * The output buffer is reused per thread.
+ *
+ * @since 3.5.2
+ */
+public class CompactCacheSerializer implements CacheSerializer {
+
+  private static final byte NULL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte INT = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte CHAR = 7;
+  private static final byte FLOAT = 8;
+  private static final byte DOUBLE = 9;
+  private static final byte STRING = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BIG_INTEGER = 12;
+  private static final byte DATE = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte TIMESTAMP = 16;
+  private static final byte BYTES = 17;
+  private static final byte ENUM = 18;
+  private static final byte ARRAY_LIST = 19;
+  private static final byte HASH_MAP = 20;
+  private static final byte LINKED_HASH_MAP = 21;
+  private static final byte HASH_SET = 22;
+  private static final byte BEAN = 23;
+  private static final byte REFERENCE = 24;
+  private static final byte SERIALIZED = 25;
+
+  private static final int INITIAL_BUFFER_SIZE = 512;
+  private static final int MAX_RETAINED_BUFFER_SIZE = 1 << 20;
+
+  private static final BeanLayout UNSUPPORTED = new BeanLayout(null, new Field[0]);
+
+  private final ThreadLocal<Output> outputs = ThreadLocal.withInitial(Output::new);
+  private final ConcurrentMap<Class<?>, BeanLayout> layouts = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+  private final JavaCacheSerializer fallback = new JavaCacheSerializer();
+
+  @Override
+  public byte[] serialize(Object value) {
+    Output output = outputs.get();
+    try {
+      output.writeValue(value);
+      return output.toByteArray();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    } finally {
+      output.reset();
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] data) {
+    try {
+      return new Input(data).readValue();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private BeanLayout layoutOf(Class<?> type) {
+    BeanLayout layout = layouts.get(type);
+    if (layout == null) {
+      layout = createLayout(type);
+      BeanLayout existing = layouts.putIfAbsent(type, layout);
+      if (existing != null) {
+        layout = existing;
+      }
+    }
+    return layout;
+  }
+
+  private static BeanLayout createLayout(Class<?> type) {
+    String name = type.getName();
+    if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+        || type.isArray() || type.isSynthetic() || Proxy.isProxyClass(type)
+        || name.startsWith("java.") || name.startsWith("javax.")) {
+      return UNSUPPORTED;
+    }
+    try {
+      Constructor<?> constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      List<Field> fields = new ArrayList<>();
+      for (Class<?> c = type; Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+        if (hasCustomSerialization(c)) {
+          return UNSUPPORTED;
+        }
+        for (Field field : c.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+            field.setAccessible(true);
+            fields.add(field);
+          }
+        }
+      }
+      return new BeanLayout(constructor, fields.toArray(new Field[0]));
+    } catch (Exception e) {
+      return UNSUPPORTED;
+    }
+  }
+
+  private static boolean hasCustomSerialization(Class<?> type) {
+    return hasMethod(type, "writeObject", ObjectOutputStream.class)
+        || hasMethod(type, "readObject", ObjectInputStream.class)
+        || hasMethod(type, "readObjectNoData")
+        || hasMethod(type, "writeReplace")
+        || hasMethod(type, "readResolve");
+  }
+
+  private static boolean hasMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+    try {
+      type.getDeclaredMethod(name, parameterTypes);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private Class<?> resolveClass(String name) throws ClassNotFoundException {
+    Class<?> type = classes.get(name);
+    if (type == null) {
+      type = Resources.classForName(name);
+      classes.putIfAbsent(name, type);
+    }
+    return type;
+  }
+
+  private static final class BeanLayout {
+
+    private final Constructor<?> constructor;
+    private final Field[] fields;
+
+    private BeanLayout(Constructor<?> constructor, Field[] fields) {
+      this.constructor = constructor;
+      this.fields = fields;
+    }
+  }
+
+  private final class Output {
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int position;
+    private final Map<Object, Integer> handles = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> classIndexes = new IdentityHashMap<>();
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+
+    void reset() {
+      position = 0;
+      handles.clear();
+      classIndexes.clear();
+      if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+      }
+    }
+
+    void writeValue(Object value) throws Exception {
+      if (value == null) {
+        writeByte(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      if (type == String.class) {
+        writeByte(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        writeByte(INT);
+        writeVarLong(zigZag((Integer) value));
+      } else if (type == Long.class) {
+        writeByte(LONG);
+        writeVarLong(zigZag((Long) value));
+      } else if (type == Boolean.class) {
+        writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (type == Short.class) {
+        writeByte(SHORT);
+        writeVarLong(zigZag((Short) value));
+      } else if (type == Byte.class) {
+        writeByte(BYTE);
+        writeByte((Byte) value);
+      } else if (type == Character.class) {
+        writeByte(CHAR);
+        writeVarLong((Character) value);
+      } else if (type == Float.class) {
+        writeByte(FLOAT);
+        writeFixedInt(Float.floatToRawIntBits((Float) value));
+      } else if (type == Double.class) {
+        writeByte(DOUBLE);
+        writeFixedLong(Double.doubleToRawLongBits((Double) value));
+      } else if (type == BigDecimal.class) {
+        BigDecimal decimal = (BigDecimal) value;
+        writeByte(BIG_DECIMAL);
+        writeBytes(decimal.unscaledValue().toByteArray());
+        writeVarLong(zigZag(decimal.scale()));
+      } else if (type == BigInteger.class) {
+        writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (type == Date.class) {
+        writeByte(DATE);
+        writeVarLong(zigZag(((Date) value).getTime()));
+      } else if (type == java.sql.Date.class) {
+        writeByte(SQL_DATE);
+        writeVarLong(zigZag(((Date) value).getTime()));
+      } else if (type == Time.class) {
+        writeByte(SQL_TIME);
+        writeVarLong(zigZag(((Date) value).getTime()));
+      } else if (type == Timestamp.class) {
+        writeByte(TIMESTAMP);
+        writeVarLong(zigZag(((Timestamp) value).getTime()));
+        writeVarLong(((Timestamp) value).getNanos());
+      } else if (type == byte[].class) {
+        writeByte(BYTES);
+        writeBytes((byte[]) value);
+      } else if (value instanceof Enum) {
+        writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else {
+        writeObject(value, type);
+      }
+    }
+
+    private void writeObject(Object value, Class<?> type) throws Exception {
+      Integer handle = handles.get(value);
+      if (handle != null) {
+        writeByte(REFERENCE);
+        writeVarLong(handle);
+      } else if (type == ArrayList.class || type == HashSet.class) {
+        handles.put(value, handles.size());
+        writeByte(type == ArrayList.class ? ARRAY_LIST : HASH_SET);
+        Collection<?> collection = (Collection<?>) value;
+        writeVarLong(collection.size());
+        for (Object element : collection) {
+          writeValue(element);
+        }
+      } else if (type == HashMap.class || type == LinkedHashMap.class) {
+        handles.put(value, handles.size());
+        writeByte(type == HashMap.class ? HASH_MAP : LINKED_HASH_MAP);
+        Map<?, ?> map = (Map<?, ?>) value;
+        writeVarLong(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          writeValue(entry.getKey());
+          writeValue(entry.getValue());
+        }
+      } else {
+        BeanLayout layout = layoutOf(type);
+        if (layout == UNSUPPORTED) {
+          writeByte(SERIALIZED);
+          writeBytes(fallback.serialize(value));
+          return;
+        }
+        handles.put(value, handles.size());
+        writeByte(BEAN);
+        writeClass(type);
+        for (Field field : layout.fields) {
+          writeField(field, value);
+        }
+      }
+    }
+
+    private void writeField(Field field, Object bean) throws Exception {
+      Class<?> type = field.getType();
+      if (!type.isPrimitive()) {
+        writeValue(field.get(bean));
+      } else if (type == int.class) {
+        writeVarLong(zigZag(field.getInt(bean)));
+      } else if (type == long.class) {
+        writeVarLong(zigZag(field.getLong(bean)));
+      } else if (type == boolean.class) {
+        writeByte(field.getBoolean(bean) ? TRUE : FALSE);
+      } else if (type == double.class) {
+        writeFixedLong(Double.doubleToRawLongBits(field.getDouble(bean)));
+      } else if (type == float.class) {
+        writeFixedInt(Float.floatToRawIntBits(field.getFloat(bean)));
+      } else if (type == short.class) {
+        writeVarLong(zigZag(field.getShort(bean)));
+      } else if (type == char.class) {
+        writeVarLong(field.getChar(bean));
+      } else {
+        writeByte(field.getByte(bean));
+      }
+    }
+
+    private void writeClass(Class<?> type) {
+      Integer index = classIndexes.get(type);
+      if (index != null) {
+        writeVarLong(index);
+      } else {
+        writeVarLong(0);
+        writeString(type.getName());
+        classIndexes.put(type, classIndexes.size() + 1);
+      }
+    }
+
+    private void writeString(String value) {
+      int length = value.length();
+      writeVarLong(length);
+      ensureCapacity(length);
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          buffer[position++] = (byte) c;
+        } else {
+          writeVarLong(c);
+          ensureCapacity(length - i);
+        }
+      }
+    }
+
+    private void writeBytes(byte[] bytes) {
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    private void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeFixedInt(int value) {
+      ensureCapacity(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeFixedLong(long value) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+      }
+    }
+
+    private long zigZag(long value) {
+      return (value << 1) ^ (value >> 63);
+    }
+  }
+
+  private final class Input {
+
+    private final byte[] data;
+    private int position;
+    private final List<Object> handles = new ArrayList<>();
+    private final List<Class<?>> classIndexes = new ArrayList<>();
+
+    Input(byte[] data) {
+      this.data = data;
+    }
+
+    Object readValue() throws Exception {
+      byte tag = data[position++];
+      switch (tag) {
+        case NULL:
+          return null;
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case INT:
+          return (int) readZigZag();
+        case LONG:
+          return readZigZag();
+        case SHORT:
+          return (short) readZigZag();
+        case BYTE:
+          return data[position++];
+        case CHAR:
+          return (char) readVarLong();
+        case FLOAT:
+          return Float.intBitsToFloat(readFixedInt());
+        case DOUBLE:
+          return Double.longBitsToDouble(readFixedLong());
+        case STRING:
+          return readString();
+        case BIG_DECIMAL:
+          return new BigDecimal(new BigInteger(readBytes()), (int) readZigZag());
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return new Date(readZigZag());
+        case SQL_DATE:
+          return new java.sql.Date(readZigZag());
+        case SQL_TIME:
+          return new Time(readZigZag());
+        case TIMESTAMP:
+          Timestamp timestamp = new Timestamp(readZigZag());
+          timestamp.setNanos((int) readVarLong());
+          return timestamp;
+        case BYTES:
+          return readBytes();
+        case ENUM:
+          return readEnum();
+        case ARRAY_LIST:
+          return readCollection(new ArrayList<>());
+        case HASH_SET:
+          return readCollection(new HashSet<>());
+        case HASH_MAP:
+          return readMap(new HashMap<>());
+        case LINKED_HASH_MAP:
+          return readMap(new LinkedHashMap<>());
+        case BEAN:
+          return readBean();
+        case REFERENCE:
+          return handles.get((int) readVarLong());
+        case SERIALIZED:
+          return fallback.deserialize(readBytes());
+        default:
+          throw new CacheException("Unknown tag " + tag + " at offset " + (position - 1) + " of cached value.");
+      }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readEnum() throws Exception {
+      Class type = readClass();
+      return Enum.valueOf(type, readString());
+    }
+
+    private Object readCollection(Collection<Object> collection) throws Exception {
+      handles.add(collection);
+      int size = (int) readVarLong();
+      for (int i = 0; i < size; i++) {
+        collection.add(readValue());
+      }
+      return collection;
+    }
+
+    private Object readMap(Map<Object, Object> map) throws Exception {
+      handles.add(map);
+      int size = (int) readVarLong();
+      for (int i = 0; i < size; i++) {
+        map.put(readValue(), readValue());
+      }
+      return map;
+    }
+
+    private Object readBean() throws Exception {
+      BeanLayout layout = layoutOf(readClass());
+      if (layout == UNSUPPORTED) {
+        throw new CacheException("Cached value contains an unsupported class.");
+      }
+      Object bean = layout.constructor.newInstance();
+      handles.add(bean);
+      for (Field field : layout.fields) {
+        readField(field, bean);
+      }
+      return bean;
+    }
+
+    private void readField(Field field, Object bean) throws Exception {
+      Class<?> type = field.getType();
+      if (!type.isPrimitive()) {
+        field.set(bean, readValue());
+      } else if (type == int.class) {
+        field.setInt(bean, (int) readZigZag());
+      } else if (type == long.class) {
+        field.setLong(bean, readZigZag());
+      } else if (type == boolean.class) {
+        field.setBoolean(bean, data[position++] == TRUE);
+      } else if (type == double.class) {
+        field.setDouble(bean, Double.longBitsToDouble(readFixedLong()));
+      } else if (type == float.class) {
+        field.setFloat(bean, Float.intBitsToFloat(readFixedInt()));
+      } else if (type == short.class) {
+        field.setShort(bean, (short) readZigZag());
+      } else if (type == char.class) {
+        field.setChar(bean, (char) readVarLong());
+      } else {
+        field.setByte(bean, data[position++]);
+      }
+    }
+
+    private Class<?> readClass() throws ClassNotFoundException {
+      int index = (int) readVarLong();
+      if (index == 0) {
+        Class<?> type = resolveClass(readString());
+        classIndexes.add(type);
+        return type;
+      }
+      return classIndexes.get(index - 1);
+    }
+
+    private String readString() {
+      int length = (int) readVarLong();
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        byte b = data[position];
+        if (b >= 0) {
+          chars[i] = (char) b;
+          position++;
+        } else {
+          chars[i] = (char) readVarLong();
+        }
+      }
+      return new String(chars);
+    }
+
+    private byte[] readBytes() {
+      int length = (int) readVarLong();
+      byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      for (int shift = 0;; shift += 7) {
+        byte b = data[position++];
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    private long readZigZag() {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readFixedInt() {
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        value = (value << 8) | (data[position++] & 0xFF);
+      }
+      return value;
+    }
+
+    private long readFixedLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (data[position++] & 0xFF);
+      }
+      return value;
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.ConcurrentCache;
+
+/**
+ * Thread-safe counterpart of {@link PerpetualCache} used as the default base of second-level caches.
+ * <p>
+ * Entries are kept in a {@link ConcurrentHashMap}, so reads never block and writes only contend on the same bin.
+ * Null keys and values (put by {@link org.apache.ibatis.cache.decorators.TransactionalCache} for misses) are stored
+ * as a placeholder.
+ *
+ * @since 3.5.2
+ */
+public class ConcurrentPerpetualCache implements ConcurrentCache {
+
+  private static final Object NULL = new Object();
+
+  private final String id;
+
+  private final ConcurrentMap<Object, Object> cache = new ConcurrentHashMap<>();
+
+  public ConcurrentPerpetualCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    cache.put(mask(key), mask(value));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return unmask(cache.get(mask(key)));
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return unmask(cache.remove(mask(key)));
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static Object mask(Object object) {
+    return object == null ? NULL : object;
+  }
+
+  private static Object unmask(Object object) {
+    return object == NULL ? null : object;
+  }
+
+}
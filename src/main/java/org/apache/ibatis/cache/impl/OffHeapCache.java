@@ -0,0 +1,264 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.ConcurrentCache;
+
+/**
+ * Cache storing serialized values outside of the Java heap, in direct {@link ByteBuffer} slabs.
+ * <p>
+ * Values are appended to the current slab; when all slabs are full the oldest slab is recycled and the entries it
+ * held are evicted. Only the keys and an index of their location stay on the heap, so large caches do not add to
+ * garbage collection pauses. Every read returns a new copy of the value.
+ * <p>
+ * Properties: {@code maximumMemory} (bytes, 256MB by default), {@code slabSize} (bytes, 16MB by default, the largest
+ * value that can be cached) and {@code serializer} (a {@link CacheSerializer} class, {@link CompactCacheSerializer}
+ * by default). Direct memory is allocated one slab at a time as it is needed and counts against
+ * {@code -XX:MaxDirectMemorySize}.
+ * <p>
+ * Reads do not lock unless a write happens at the same time.
+ *
+ * @since 3.5.2
+ */
+public class OffHeapCache implements ConcurrentCache, InitializingObject {
+
+  private static final Object NULL_KEY = new Object();
+  private static final int HEADER_SIZE = 4;
+
+  private final String id;
+  private final ConcurrentMap<Object, Long> index = new ConcurrentHashMap<>();
+  private final StampedLock lock = new StampedLock();
+  private long maximumMemory = 256L * 1024 * 1024;
+  private int slabSize = 16 * 1024 * 1024;
+  private CacheSerializer serializer = new CompactCacheSerializer();
+  private ByteBuffer[] slabs;
+  private List<List<Object>> slabKeys;
+  private int current;
+  private int position;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+    initialize();
+  }
+
+  public void setMaximumMemory(long maximumMemory) {
+    this.maximumMemory = maximumMemory;
+  }
+
+  public void setSlabSize(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  @Override
+  public void initialize() {
+    if (slabSize <= HEADER_SIZE || maximumMemory < slabSize) {
+      throw new CacheException("Invalid off-heap cache sizes for '" + id + "': slabSize " + slabSize
+          + ", maximumMemory " + maximumMemory + ".");
+    }
+    long stamp = lock.writeLock();
+    try {
+      int slabCount = (int) Math.min(Integer.MAX_VALUE, maximumMemory / slabSize);
+      slabs = new ByteBuffer[slabCount];
+      slabKeys = new ArrayList<>(slabCount);
+      for (int i = 0; i < slabCount; i++) {
+        slabKeys.add(new ArrayList<>());
+      }
+      index.clear();
+      current = 0;
+      position = 0;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return index.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    byte[] data = serializer.serialize(value);
+    Object indexKey = maskKey(key);
+    int size = HEADER_SIZE + data.length;
+    long stamp = lock.writeLock();
+    try {
+      if (size > slabSize) {
+        index.remove(indexKey);
+        return;
+      }
+      if (position + size > slabSize) {
+        recycleNextSlab();
+      }
+      ByteBuffer slab = slabs[current];
+      if (slab == null) {
+        slab = ByteBuffer.allocateDirect(slabSize);
+        slabs[current] = slab;
+      }
+      slab.putInt(position, data.length);
+      ByteBuffer target = slab.duplicate();
+      target.position(position + HEADER_SIZE);
+      target.put(data);
+      index.put(indexKey, address(current, position));
+      slabKeys.get(current).add(indexKey);
+      position += size;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte[] data = read(maskKey(key));
+    return data == null ? null : serializer.deserialize(data);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    byte[] data;
+    long stamp = lock.writeLock();
+    try {
+      // under the write lock so that a concurrent put of the same key is either removed too or kept whole
+      data = readAt(index.remove(maskKey(key)));
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+    return data == null ? null : serializer.deserialize(data);
+  }
+
+  @Override
+  public void clear() {
+    long stamp = lock.writeLock();
+    try {
+      index.clear();
+      for (List<Object> keys : slabKeys) {
+        keys.clear();
+      }
+      current = 0;
+      position = 0;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private byte[] read(Object indexKey) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        byte[] data = readAt(index.get(indexKey));
+        if (lock.validate(stamp)) {
+          return data;
+        }
+      } catch (RuntimeException e) {
+        // a concurrent write moved the data, read again under the lock
+      }
+    }
+    stamp = lock.readLock();
+    try {
+      return readAt(index.get(indexKey));
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private byte[] readAt(Long address) {
+    if (address == null) {
+      return null;
+    }
+    ByteBuffer slab = slabs[(int) (address >>> 32)];
+    int offset = (int) address.longValue();
+    int length = slab.getInt(offset);
+    // checked in long: a torn length read optimistically must not overflow past the check
+    if (length < 0 || (long) offset + HEADER_SIZE + length > slab.capacity()) {
+      throw new IllegalStateException("Inconsistent off-heap entry");
+    }
+    byte[] data = new byte[length];
+    ByteBuffer source = slab.duplicate();
+    source.position(offset + HEADER_SIZE);
+    source.get(data);
+    return data;
+  }
+
+  private void recycleNextSlab() {
+    final int next = (current + 1) % slabs.length;
+    List<Object> keys = slabKeys.get(next);
+    for (Object key : keys) {
+      index.computeIfPresent(key, (k, address) -> (int) (address >>> 32) == next ? null : address);
+    }
+    keys.clear();
+    current = next;
+    position = 0;
+  }
+
+  private static long address(int slab, int offset) {
+    return ((long) slab << 32) | (offset & 0xFFFFFFFFL);
+  }
+
+  private static Object maskKey(Object key) {
+    return key == null ? NULL_KEY : key;
+  }
+
+}
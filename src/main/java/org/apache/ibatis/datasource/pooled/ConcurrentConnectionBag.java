@@ -0,0 +1,330 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free container of pooled connections used when {@link PooledDataSource#isPoolLockFreeEnabled()} is set.
+ * <p>
+ * A borrowing thread first looks at the connections it returned itself (thread affinity slots), then scans the shared
+ * list, and finally waits on a fair hand-off queue that returning threads feed directly. None of these paths takes a
+ * monitor, so checkout and return scale with the number of cores.
+ */
+final class ConcurrentConnectionBag {
+
+  static final int STATE_REMOVED = -1;
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  static final int STATE_RESERVED = 2;
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<Entry>>> threadList = ThreadLocal.withInitial(ArrayList::new);
+  private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final AtomicInteger totalCount = new AtomicInteger();
+  // entries in STATE_NOT_IN_USE, maintained on every state change so that reading it does not scan the shared list
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  /**
+   * Borrows an idle entry without waiting.
+   *
+   * @return the borrowed entry (now in use) or null if there is no idle entry
+   */
+  Entry poll() {
+    Entry entry = pollThreadList();
+    return entry != null ? entry : scanSharedList();
+  }
+
+  /**
+   * Borrows an idle entry, waiting up to the given timeout for one to be returned.
+   *
+   * @param timeout the time to wait
+   * @param unit the unit of the timeout
+   * @return the borrowed entry (now in use) or null if none became available in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  Entry borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    Entry entry = pollThreadList();
+    if (entry != null) {
+      return entry;
+    }
+
+    waiters.incrementAndGet();
+    try {
+      entry = scanSharedList();
+      if (entry != null) {
+        return entry;
+      }
+      long remaining = unit.toNanos(timeout);
+      while (remaining > 0) {
+        long start = System.nanoTime();
+        entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null) {
+          return null;
+        }
+        if (compareAndSetState(entry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns a borrowed entry to the bag, handing it directly to a waiting thread if there is one.
+   *
+   * @param entry the entry to return
+   * @return false if the entry was removed while it was borrowed
+   */
+  boolean requite(Entry entry) {
+    if (!compareAndSetState(entry, STATE_IN_USE, STATE_NOT_IN_USE)) {
+      return false;
+    }
+    offer(entry);
+    List<WeakReference<Entry>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(new WeakReference<>(entry));
+    }
+    return true;
+  }
+
+  /**
+   * Reserves room for a new entry if the bag holds fewer than the given number of entries.
+   * The reservation must be followed by either {@link #add(PooledConnection, int)} or {@link #cancelReservation()}.
+   *
+   * @param maximum the maximum number of entries
+   * @return true if room was reserved
+   */
+  boolean tryReserve(int maximum) {
+    for (;;) {
+      int count = totalCount.get();
+      if (count >= maximum) {
+        return false;
+      }
+      if (totalCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  void cancelReservation() {
+    totalCount.decrementAndGet();
+  }
+
+  /**
+   * Adds a connection for which room was reserved with {@link #tryReserve(int)}.
+   *
+   * @param connection the connection
+   * @param state either {@link #STATE_IN_USE} when the caller keeps it or {@link #STATE_NOT_IN_USE}
+   * @return the new entry
+   */
+  Entry add(PooledConnection connection, int state) {
+    Entry entry = new Entry(connection, state);
+    if (state == STATE_NOT_IN_USE) {
+      idleCount.incrementAndGet();
+    }
+    sharedList.add(entry);
+    if (state == STATE_NOT_IN_USE) {
+      offer(entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Removes an entry that is in use or reserved by the caller.
+   *
+   * @param entry the entry to remove
+   * @return false if the entry was already removed
+   */
+  boolean remove(Entry entry) {
+    if (!compareAndSetState(entry, STATE_IN_USE, STATE_REMOVED)
+        && !compareAndSetState(entry, STATE_RESERVED, STATE_REMOVED)) {
+      return false;
+    }
+    sharedList.remove(entry);
+    totalCount.decrementAndGet();
+    return true;
+  }
+
+  /**
+   * Marks an idle entry as reserved so that no other thread can borrow it (e.g. while it is being validated).
+   *
+   * @param entry the entry to reserve
+   * @return true if the entry was idle and is now reserved
+   */
+  boolean reserve(Entry entry) {
+    return compareAndSetState(entry, STATE_NOT_IN_USE, STATE_RESERVED);
+  }
+
+  void unreserve(Entry entry) {
+    if (compareAndSetState(entry, STATE_RESERVED, STATE_NOT_IN_USE)) {
+      offer(entry);
+    }
+  }
+
+  /**
+   * Removes every entry regardless of its state.
+   *
+   * @return the removed entries
+   */
+  List<Entry> clear() {
+    List<Entry> removed = new ArrayList<>();
+    for (Entry entry : sharedList) {
+      int previous = entry.getAndSetState(STATE_REMOVED);
+      if (previous == STATE_NOT_IN_USE) {
+        idleCount.decrementAndGet();
+      }
+      if (previous != STATE_REMOVED) {
+        sharedList.remove(entry);
+        totalCount.decrementAndGet();
+        removed.add(entry);
+      }
+    }
+    return removed;
+  }
+
+  List<Entry> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (Entry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the number of idle entries, read without scanning the bag
+   */
+  int getIdleCount() {
+    return idleCount.get();
+  }
+
+  int size() {
+    return totalCount.get();
+  }
+
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  private Entry pollThreadList() {
+    List<WeakReference<Entry>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      Entry entry = list.remove(i).get();
+      if (entry != null && compareAndSetState(entry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private Entry scanSharedList() {
+    for (Entry entry : sharedList) {
+      if (compareAndSetState(entry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private boolean compareAndSetState(Entry entry, int expect, int update) {
+    if (!entry.compareAndSetState(expect, update)) {
+      return false;
+    }
+    if (expect == STATE_NOT_IN_USE) {
+      idleCount.decrementAndGet();
+    } else if (update == STATE_NOT_IN_USE) {
+      idleCount.incrementAndGet();
+    }
+    return true;
+  }
+
+  private void offer(Entry entry) {
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * A slot of the bag. The slot keeps its real connection for its whole life, but the {@link PooledConnection}
+   * wrapping it is replaced every time the connection is returned or claimed.
+   */
+  static final class Entry {
+
+    private final AtomicInteger state;
+    private final AtomicReference<PooledConnection> connection;
+
+    private Entry(PooledConnection connection, int state) {
+      this.state = new AtomicInteger(state);
+      this.connection = new AtomicReference<>(connection);
+      connection.setBagEntry(this);
+    }
+
+    PooledConnection getConnection() {
+      return connection.get();
+    }
+
+    /**
+     * Replaces the pooled connection of this entry if it is still the expected one.
+     *
+     * @param expect the pooled connection the caller believes it owns
+     * @param update the replacement
+     * @return false if another thread replaced the connection first
+     */
+    boolean compareAndSetConnection(PooledConnection expect, PooledConnection update) {
+      update.setBagEntry(this);
+      return connection.compareAndSet(expect, update);
+    }
+
+    int getState() {
+      return state.get();
+    }
+
+    private boolean compareAndSetState(int expect, int update) {
+      return state.compareAndSet(expect, update);
+    }
+
+    private int getAndSetState(int update) {
+      return state.getAndSet(update);
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Periodically runs a pool housekeeping action (e.g. {@link PooledDataSource#maintainPool()}) on a daemon thread shared
+ * by all pools.
+ * <p>
+ * The task only keeps a weak reference to its data source and cancels itself once the data source has been
+ * garbage collected, so an abandoned pool does not leak through the scheduler.
+ */
+final class PoolMaintenanceTask implements Runnable {
+
+  private static final Log log = LogFactory.getLog(PoolMaintenanceTask.class);
+
+  private final WeakReference<PooledDataSource> dataSource;
+  private final Consumer<PooledDataSource> action;
+  private volatile ScheduledFuture<?> future;
+
+  private PoolMaintenanceTask(PooledDataSource dataSource, Consumer<PooledDataSource> action) {
+    this.dataSource = new WeakReference<>(dataSource);
+    this.action = action;
+  }
+
+  static PoolMaintenanceTask schedule(PooledDataSource dataSource, long intervalMillis, Consumer<PooledDataSource> action) {
+    PoolMaintenanceTask task = new PoolMaintenanceTask(dataSource, action);
+    task.future = SchedulerHolder.SCHEDULER.scheduleWithFixedDelay(task, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    return task;
+  }
+
+  void cancel() {
+    ScheduledFuture<?> f = future;
+    if (f != null) {
+      f.cancel(false);
+    }
+  }
+
+  @Override
+  public void run() {
+    PooledDataSource ds = dataSource.get();
+    if (ds == null) {
+      cancel();
+      return;
+    }
+    try {
+      action.accept(ds);
+    } catch (RuntimeException e) {
+      log.warn("Pool maintenance failed: " + e.getMessage());
+    }
+  }
+
+  private static class SchedulerHolder {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-maintenance");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+}
@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in {@link PoolMetricsTracker} keeping lock-free histograms of checkout and usage times, and the stack traces
+ * of the most recent connection leaks.
+ * <pre>
+ * PoolMetrics metrics = new PoolMetrics(dataSource.getPoolState());
+ * dataSource.setPoolMetricsTracker(metrics);
+ * dataSource.setPoolLeakDetectionThreshold(60000);
+ * </pre>
+ *
+ * @since 3.5.2
+ */
+public class PoolMetrics implements PoolMetricsTracker {
+
+  private static final int MAX_RECENT_LEAKS = 16;
+
+  private final PoolState poolState;
+  private final LatencyHistogram checkoutTimeHistogram = new LatencyHistogram();
+  private final LatencyHistogram usageTimeHistogram = new LatencyHistogram();
+  private final LongAdder waitCount = new LongAdder();
+  private final LongAdder leakCount = new LongAdder();
+  private final ConcurrentLinkedDeque<Throwable> recentLeaks = new ConcurrentLinkedDeque<>();
+
+  public PoolMetrics(PoolState poolState) {
+    this.poolState = poolState;
+  }
+
+  @Override
+  public void connectionAcquired(long elapsedNanos, boolean waited) {
+    checkoutTimeHistogram.record(elapsedNanos);
+    if (waited) {
+      waitCount.increment();
+    }
+  }
+
+  @Override
+  public void connectionReleased(long usageMillis) {
+    usageTimeHistogram.record(usageMillis);
+  }
+
+  @Override
+  public void connectionLeaked(long heldMillis, Throwable checkoutTrace) {
+    leakCount.increment();
+    recentLeaks.addFirst(checkoutTrace);
+    while (recentLeaks.size() > MAX_RECENT_LEAKS) {
+      recentLeaks.pollLast();
+    }
+  }
+
+  /**
+   * Time spent getting a connection from the pool, in nanoseconds.
+   *
+   * @return the histogram
+   */
+  public LatencyHistogram getCheckoutTimeHistogram() {
+    return checkoutTimeHistogram;
+  }
+
+  /**
+   * Time connections were checked out, in milliseconds.
+   *
+   * @return the histogram
+   */
+  public LatencyHistogram getUsageTimeHistogram() {
+    return usageTimeHistogram;
+  }
+
+  public long getWaitCount() {
+    return waitCount.sum();
+  }
+
+  public long getLeakCount() {
+    return leakCount.sum();
+  }
+
+  /**
+   * The checkout stack traces of the most recent leaks, newest first.
+   *
+   * @return the traces
+   */
+  public List<Throwable> getRecentLeaks() {
+    return new ArrayList<>(recentLeaks);
+  }
+
+  public int getActiveConnectionCount() {
+    return poolState.getActiveConnectionCount();
+  }
+
+  public int getIdleConnectionCount() {
+    return poolState.getIdleConnectionCount();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("\n===POOL METRICS================================================");
+    builder.append("\n activeConnections              ").append(getActiveConnectionCount());
+    builder.append("\n idleConnections                ").append(getIdleConnectionCount());
+    builder.append("\n checkoutTime (ns)              ").append(checkoutTimeHistogram);
+    builder.append("\n usageTime (ms)                 ").append(usageTimeHistogram);
+    builder.append("\n waitCount                      ").append(getWaitCount());
+    builder.append("\n leakCount                      ").append(getLeakCount());
+    builder.append("\n===============================================================");
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,57 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives the events of a {@link PooledDataSource}, e.g. to publish them to a metrics library.
+ * <p>
+ * The methods are called on the application threads (and on the maintenance thread for leaks) without any pool lock
+ * held, so implementations must be thread-safe and should not block.
+ *
+ * @see PooledDataSource#setPoolMetricsTracker(PoolMetricsTracker)
+ * @see PoolMetrics
+ * @since 3.5.2
+ */
+public interface PoolMetricsTracker {
+
+  /**
+   * A connection was checked out.
+   *
+   * @param elapsedNanos the time spent in the pool, including the time waiting for a connection
+   * @param waited true if the caller had to wait for a connection to be returned
+   */
+  default void connectionAcquired(long elapsedNanos, boolean waited) {
+  }
+
+  /**
+   * A connection was returned to the pool (or closed because the pool did not need it anymore).
+   *
+   * @param usageMillis how long the connection was checked out
+   */
+  default void connectionReleased(long usageMillis) {
+  }
+
+  /**
+   * A connection has been checked out for longer than the {@link PooledDataSource#setPoolLeakDetectionThreshold(int)
+   * leak detection threshold}. Reported once per checkout.
+   *
+   * @param heldMillis how long the connection has been checked out so far
+   * @param checkoutTrace an exception whose stack trace shows where the connection was checked out
+   */
+  default void connectionLeaked(long heldMillis, Throwable checkoutTrace) {
+  }
+
+}
@@ -17,6 +17,9 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Clinton Begin
@@ -27,63 +30,98 @@ public class PoolState {
 
   protected final List<PooledConnection> idleConnections = new ArrayList<>();
   protected final List<PooledConnection> activeConnections = new ArrayList<>();
-  protected long requestCount = 0;
-  protected long accumulatedRequestTime = 0;
-  protected long accumulatedCheckoutTime = 0;
-  protected long claimedOverdueConnectionCount = 0;
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  protected long accumulatedWaitTime = 0;
-  protected long hadToWaitCount = 0;
-  protected long badConnectionCount = 0;
+  // idle connections the maintenance thread is pinging; they count towards the maximum active connections
+  final List<PooledConnection> validatingConnections = new ArrayList<>();
+  final ConcurrentConnectionBag connectionBag = new ConcurrentConnectionBag();
+  // guards the connection lists; a lock rather than a monitor so that virtual threads waiting for a connection unmount
+  final ReentrantLock lock = new ReentrantLock();
+  final Condition condition = lock.newCondition();
+  // updated by PooledDataSource without holding the lock; these were protected long fields before 3.5.2
+  protected final LongAdder requestCount = new LongAdder();
+  protected final LongAdder accumulatedRequestTime = new LongAdder();
+  protected final LongAdder accumulatedCheckoutTime = new LongAdder();
+  protected final LongAdder claimedOverdueConnectionCount = new LongAdder();
+  protected final LongAdder accumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
+  protected final LongAdder accumulatedWaitTime = new LongAdder();
+  protected final LongAdder hadToWaitCount = new LongAdder();
+  protected final LongAdder badConnectionCount = new LongAdder();
+  private final StatementCacheMetrics statementCacheMetrics = new StatementCacheMetrics();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  public long getRequestCount() {
+    return requestCount.sum();
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageRequestTime() {
+    long count = requestCount.sum();
+    return count == 0 ? 0 : accumulatedRequestTime.sum() / count;
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getAverageWaitTime() {
+    long count = hadToWaitCount.sum();
+    return count == 0 ? 0 : accumulatedWaitTime.sum() / count;
 
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  public long getHadToWaitCount() {
+    return hadToWaitCount.sum();
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  public long getBadConnectionCount() {
+    return badConnectionCount.sum();
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount.sum();
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getAverageOverdueCheckoutTime() {
+    long count = claimedOverdueConnectionCount.sum();
+    return count == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections.sum() / count;
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  /**
+   * @since 3.5.2
+   */
+  public StatementCacheMetrics getStatementCacheMetrics() {
+    return statementCacheMetrics;
+  }
+
+  public long getAverageCheckoutTime() {
+    long count = requestCount.sum();
+    return count == 0 ? 0 : accumulatedCheckoutTime.sum() / count;
   }
 
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  public int getIdleConnectionCount() {
+    if (dataSource.isPoolLockFreeEnabled()) {
+      return connectionBag.getIdleCount();
+    }
+    lock.lock();
+    try {
+      return idleConnections.size();
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  public int getActiveConnectionCount() {
+    if (dataSource.isPoolLockFreeEnabled()) {
+      return connectionBag.getCount(ConcurrentConnectionBag.STATE_IN_USE);
+    }
+    lock.lock();
+    try {
+      return activeConnections.size();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -97,6 +135,13 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolLockFreeEnabled            ").append(dataSource.poolLockFreeEnabled);
+    builder.append("\n poolMaintenanceInterval        ").append(dataSource.poolMaintenanceInterval);
+    builder.append("\n poolMaxConnectionLifetime      ").append(dataSource.poolMaximumConnectionLifetime);
+    builder.append("\n poolMaxIdleTime                ").append(dataSource.poolMaximumIdleTime);
+    builder.append("\n poolMinIdleConnections         ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolLeakDetectionThreshold     ").append(dataSource.poolLeakDetectionThreshold);
+    builder.append("\n poolPreparedStatementCacheSize ").append(dataSource.poolPreparedStatementCacheSize);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -108,6 +153,8 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n statementCacheHits             ").append(statementCacheMetrics.getHitCount());
+    builder.append("\n statementCacheMisses           ").append(statementCacheMetrics.getMissCount());
     builder.append("\n===============================================================");
     return builder.toString();
   }
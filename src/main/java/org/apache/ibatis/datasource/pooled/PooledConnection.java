@@ -29,17 +29,24 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String PREPARE_STATEMENT = "prepareStatement";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
 
   private final int hashCode;
+  private final long pooledTimestamp;
   private final PooledDataSource dataSource;
   private final Connection realConnection;
   private final Connection proxyConnection;
   private long checkoutTimestamp;
   private long createdTimestamp;
   private long lastUsedTimestamp;
+  private long lastValidatedTimestamp;
   private int connectionTypeCode;
-  private boolean valid;
+  private volatile boolean valid;
+  private ConcurrentConnectionBag.Entry bagEntry;
+  private Throwable checkoutTrace;
+  private volatile boolean leakReported;
+  private PreparedStatementCache statementCache;
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -52,6 +59,7 @@ class PooledConnection implements InvocationHandler {
     this.realConnection = connection;
     this.dataSource = dataSource;
     this.createdTimestamp = System.currentTimeMillis();
+    this.pooledTimestamp = createdTimestamp;
     this.lastUsedTimestamp = System.currentTimeMillis();
     this.valid = true;
     this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
@@ -163,6 +171,43 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - lastUsedTimestamp;
   }
 
+  /**
+   * Getter for the time that the connection was last successfully pinged.
+   *
+   * @return - the timestamp, or 0 if it has never been pinged
+   */
+  public long getLastValidatedTimestamp() {
+    return lastValidatedTimestamp;
+  }
+
+  /**
+   * Setter for the time that the connection was last successfully pinged.
+   *
+   * @param lastValidatedTimestamp - the timestamp
+   */
+  public void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+    this.lastValidatedTimestamp = lastValidatedTimestamp;
+  }
+
+  /**
+   * Getter for the time since this connection was last used or successfully pinged, whichever is the most recent.
+   *
+   * @return - the time since the connection was last known to be good
+   */
+  public long getTimeElapsedSinceLastUseOrValidation() {
+    return System.currentTimeMillis() - Math.max(lastUsedTimestamp, lastValidatedTimestamp);
+  }
+
+  /**
+   * Getter for the time since the connection was put into the pool (when opened or returned).
+   * Only meaningful while the connection is idle.
+   *
+   * @return the idle time
+   */
+  public long getIdleTime() {
+    return System.currentTimeMillis() - pooledTimestamp;
+  }
+
   /**
    * Getter for the age of the connection.
    *
@@ -199,6 +244,73 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - checkoutTimestamp;
   }
 
+  /**
+   * Getter for the slot of the lock-free pool holding this connection.
+   *
+   * @return the slot, or null when the pool does not run in lock-free mode
+   */
+  ConcurrentConnectionBag.Entry getBagEntry() {
+    return bagEntry;
+  }
+
+  /**
+   * Setter for the slot of the lock-free pool holding this connection.
+   *
+   * @param bagEntry - the slot
+   */
+  void setBagEntry(ConcurrentConnectionBag.Entry bagEntry) {
+    this.bagEntry = bagEntry;
+  }
+
+  /**
+   * Getter for the stack trace captured at checkout when leak detection is enabled.
+   *
+   * @return the trace, or null
+   */
+  public Throwable getCheckoutTrace() {
+    return checkoutTrace;
+  }
+
+  /**
+   * Setter for the stack trace captured at checkout.
+   *
+   * @param checkoutTrace - the trace
+   */
+  public void setCheckoutTrace(Throwable checkoutTrace) {
+    this.checkoutTrace = checkoutTrace;
+  }
+
+  /**
+   * Marks this checkout as reported as a leak.
+   *
+   * @return false if it was already reported
+   */
+  boolean markLeakReported() {
+    if (leakReported) {
+      return false;
+    }
+    leakReported = true;
+    return true;
+  }
+
+  /**
+   * Getter for the prepared statement cache of the real connection.
+   *
+   * @return the cache, or null if no statement has been cached yet
+   */
+  PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Setter for the prepared statement cache, used to carry the cache over when the real connection is wrapped again.
+   *
+   * @param statementCache - the cache
+   */
+  void setStatementCache(PreparedStatementCache statementCache) {
+    this.statementCache = statementCache;
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
@@ -242,6 +354,13 @@ class PooledConnection implements InvocationHandler {
         // throw an SQLException instead of a Runtime
         checkConnection();
       }
+      if (PREPARE_STATEMENT.equals(methodName) && dataSource.getPoolPreparedStatementCacheSize() > 0) {
+        if (statementCache == null) {
+          statementCache = new PreparedStatementCache(realConnection, dataSource.getPoolPreparedStatementCacheSize(),
+              dataSource.getPoolState().getStatementCacheMetrics());
+        }
+        return statementCache.prepare(this, method, args);
+      }
       return method.invoke(realConnection, args);
     } catch (Throwable t) {
       throw ExceptionUtil.unwrapThrowable(t);
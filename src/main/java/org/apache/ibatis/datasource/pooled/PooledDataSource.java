@@ -16,13 +16,24 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -48,6 +59,12 @@ import org.apache.ibatis.logging.LogFactory;
  * poolPingQuery – 发送到数据库的侦测查询，用来检验连接是否正常工作并准备接受请求。默认是“NO PING QUERY SET”，这会导致多数数据库驱动出错时返回恰当的错误消息。
  * poolPingEnabled – 是否启用侦测查询。若开启，需要设置 poolPingQuery 属性为一个可执行的 SQL 语句（最好是一个速度非常快的 SQL 语句），默认值：false。
  * poolPingConnectionsNotUsedFor – 配置 poolPingQuery 的频率。可以被设置为和数据库连接超时时间一样，来避免不必要的侦测，默认值：0（即所有连接每一时刻都被侦测 — 当然仅当 poolPingEnabled 为 true 时适用）。
+ * poolLockFreeEnabled – 是否使用无锁模式管理连接池。开启后连接的检出与归还不再竞争同一把锁（PoolState 监视器），适合多核高并发场景，默认值：false。
+ * poolMaintenanceInterval – 后台维护任务的执行间隔。维护任务在后台线程上侦测空闲连接、淘汰过期连接并补足最小空闲连接数，默认值：0（即不启用）。
+ * poolMaximumConnectionLifetime – 连接的最大存活时间，超过后空闲时会被关闭，默认值：0（即不限制）。
+ * poolMaximumIdleTime – 连接的最大空闲时间，超过后会被后台维护任务关闭（但保留 poolMinimumIdleConnections 个），默认值：0（即不限制）。
+ * poolMinimumIdleConnections – 后台维护任务保持的最少空闲连接数，默认值：0。
+ * poolLeakDetectionThreshold – 连接被检出超过该时间（毫秒）后视为泄漏，记录检出时的调用栈并告警，默认值：0（即不检测）。
  *
  * @author Clinton Begin
  */
@@ -77,8 +94,24 @@ public class PooledDataSource implements DataSource {
   protected boolean poolPingEnabled;
   // 心跳检测的频率
   protected int poolPingConnectionsNotUsedFor;
+  // 是否启用无锁连接池模式，默认为false
+  protected boolean poolLockFreeEnabled;
+  // 后台维护任务的执行间隔，0表示不启用
+  protected int poolMaintenanceInterval;
+  protected int poolMaximumConnectionLifetime;
+  protected int poolMaximumIdleTime;
+  protected int poolMinimumIdleConnections;
+  // 连接泄漏检测阈值，0表示不检测
+  protected int poolLeakDetectionThreshold;
 
-  private int expectedConnectionTypeCode;
+  protected int poolPreparedStatementCacheSize;
+
+  private PoolMaintenanceTask maintenanceTask;
+  private PoolMaintenanceTask leakDetectionTask;
+  private PoolMetricsTracker metricsTracker;
+
+  // read without the pool lock by the lock-free checkout path
+  private volatile int expectedConnectionTypeCode;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -271,6 +304,120 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * Determines if the pool should hand out and take back connections without locking the pool state.
+   * Idle connections are then kept in per-thread slots and a shared concurrent bag, and threads waiting for a
+   * connection are served through a fair hand-off queue.
+   *
+   * @param poolLockFreeEnabled True to use the lock-free pool
+   */
+  public void setPoolLockFreeEnabled(boolean poolLockFreeEnabled) {
+    this.poolLockFreeEnabled = poolLockFreeEnabled;
+    forceCloseAll();
+  }
+
+  /**
+   * How often, in milliseconds, a background thread maintains the idle connections: it pings them (see
+   * {@link #setPoolPingEnabled(boolean)}), closes the ones past their lifetime or idle time, and opens new ones to keep
+   * the minimum number of idle connections. A value of zero or less stops the maintenance.
+   * <p>
+   * A connection pinged by the maintenance is not pinged again on checkout until
+   * {@link #setPoolPingConnectionsNotUsedFor(int) poolPingConnectionsNotUsedFor} elapses, so setting the interval below
+   * that value takes the ping off the caller's thread.
+   *
+   * @param milliseconds the interval between two maintenance runs
+   * @since 3.5.2
+   */
+  public void setPoolMaintenanceInterval(int milliseconds) {
+    this.poolMaintenanceInterval = milliseconds;
+    forceCloseAll();
+    if (maintenanceTask != null) {
+      maintenanceTask.cancel();
+      maintenanceTask = null;
+    }
+    if (milliseconds > 0) {
+      maintenanceTask = PoolMaintenanceTask.schedule(this, milliseconds, PooledDataSource::maintainPool);
+    }
+  }
+
+  /**
+   * The maximum time a connection is kept open. Older connections are closed when they are returned or found idle.
+   *
+   * @param milliseconds the maximum lifetime, zero or less for no limit
+   * @since 3.5.2
+   */
+  public void setPoolMaximumConnectionLifetime(int milliseconds) {
+    this.poolMaximumConnectionLifetime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The maximum time a connection can stay idle before the maintenance closes it.
+   *
+   * @param milliseconds the maximum idle time, zero or less for no limit
+   * @since 3.5.2
+   */
+  public void setPoolMaximumIdleTime(int milliseconds) {
+    this.poolMaximumIdleTime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The number of idle connections the maintenance keeps open (never more than the maximum idle connections).
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   * @since 3.5.2
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    forceCloseAll();
+  }
+
+  /**
+   * Connections checked out for longer than this many milliseconds are reported as leaks: a warning with the stack
+   * trace of the checkout is logged and {@link PoolMetricsTracker#connectionLeaked(long, Throwable)} is called.
+   * Capturing the stack trace has a cost on every checkout, so this should be well above the normal usage time.
+   *
+   * @param milliseconds the threshold, zero or less to disable leak detection
+   * @since 3.5.2
+   */
+  public void setPoolLeakDetectionThreshold(int milliseconds) {
+    this.poolLeakDetectionThreshold = milliseconds;
+    if (leakDetectionTask != null) {
+      leakDetectionTask.cancel();
+      leakDetectionTask = null;
+    }
+    if (milliseconds > 0) {
+      leakDetectionTask = PoolMaintenanceTask.schedule(this, Math.max(milliseconds / 2, 1), PooledDataSource::detectConnectionLeaks);
+    }
+  }
+
+  /**
+   * The number of idle prepared statements kept open per connection. A statement closed by the application goes back
+   * to the cache of its connection and is handed out again by the next {@code prepareStatement} call with the same
+   * arguments, even after the connection went back to the pool, so short sessions reuse the statements prepared by
+   * earlier ones. The least recently used statement is closed when the cache is full. Hits and misses are counted in
+   * {@link PoolState#getStatementCacheMetrics()}.
+   *
+   * @param poolPreparedStatementCacheSize the number of statements, zero or less to disable the cache
+   * @since 3.5.2
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
+  /**
+   * Sets the tracker receiving the checkout, usage and leak events of this pool.
+   *
+   * @param metricsTracker the tracker, or null to disable tracking
+   * @see PoolMetrics
+   * @since 3.5.2
+   */
+  public void setPoolMetricsTracker(PoolMetricsTracker metricsTracker) {
+    this.metricsTracker = metricsTracker;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -338,11 +485,44 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public boolean isPoolLockFreeEnabled() {
+    return poolLockFreeEnabled;
+  }
+
+  public int getPoolMaintenanceInterval() {
+    return poolMaintenanceInterval;
+  }
+
+  public int getPoolMaximumConnectionLifetime() {
+    return poolMaximumConnectionLifetime;
+  }
+
+  public int getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolLeakDetectionThreshold() {
+    return poolLeakDetectionThreshold;
+  }
+
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
+  public PoolMetricsTracker getPoolMetricsTracker() {
+    return metricsTracker;
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
   public void forceCloseAll() {
-    synchronized (state) {
+    state.lock.lock();
+    try {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
       for (int i = state.activeConnections.size(); i > 0; i--) {
         try {
@@ -372,6 +552,13 @@ public class PooledDataSource implements DataSource {
           // ignore
         }
       }
+      for (ConcurrentConnectionBag.Entry entry : state.connectionBag.clear()) {
+        PooledConnection conn = entry.getConnection();
+        conn.invalidate();
+        closeQuietly(conn);
+      }
+    } finally {
+      state.lock.unlock();
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -387,12 +574,22 @@ public class PooledDataSource implements DataSource {
   }
 
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    PoolMetricsTracker tracker = metricsTracker;
+    if (tracker != null && conn.getCheckoutTimestamp() != 0) {
+      tracker.connectionReleased(conn.getCheckoutTime());
+    }
+    if (conn.getBagEntry() != null) {
+      pushConnectionLockFree(conn);
+      return;
+    }
 
-    synchronized (state) {
+    state.lock.lock();
+    try {
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isPastMaximumLifetime(conn)) {
+          state.accumulatedCheckoutTime.add(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -400,13 +597,15 @@ public class PooledDataSource implements DataSource {
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+          newConn.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
+          newConn.setStatementCache(conn.getStatementCache());
           conn.invalidate();
           if (log.isDebugEnabled()) {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
-          state.notifyAll();
+          state.condition.signalAll();
         } else {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.accumulatedCheckoutTime.add(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -420,19 +619,91 @@ public class PooledDataSource implements DataSource {
         if (log.isDebugEnabled()) {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
-        state.badConnectionCount++;
+        state.badConnectionCount.increment();
+      }
+    } finally {
+      state.lock.unlock();
+    }
+  }
+
+  private void pushConnectionLockFree(PooledConnection conn) throws SQLException {
+    ConcurrentConnectionBag bag = state.connectionBag;
+    ConcurrentConnectionBag.Entry entry = conn.getBagEntry();
+    if (!conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCount.increment();
+      // the slot is only ours to discard if the connection has not been claimed as overdue by another thread
+      if (entry.getConnection() == conn && bag.remove(entry)) {
+        closeQuietly(conn);
+      }
+      return;
+    }
+    state.accumulatedCheckoutTime.add(conn.getCheckoutTime());
+    if (bag.getIdleCount() < poolMaximumIdleConnections
+        && conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isPastMaximumLifetime(conn)) {
+      PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+      newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+      newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+      newConn.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
+      newConn.setStatementCache(conn.getStatementCache());
+      if (!entry.compareAndSetConnection(conn, newConn)) {
+        // claimed as overdue while we were using it
+        state.badConnectionCount.increment();
+        return;
+      }
+      conn.invalidate();
+      try {
+        if (!conn.getRealConnection().getAutoCommit()) {
+          conn.getRealConnection().rollback();
+        }
+      } catch (SQLException e) {
+        if (bag.remove(entry)) {
+          closeQuietly(newConn);
+        }
+        throw e;
+      }
+      if (bag.requite(entry)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+        }
+      } else {
+        // the pool was closed while the connection was checked out
+        closeQuietly(newConn);
+      }
+    } else {
+      if (entry.getConnection() != conn || !bag.remove(entry)) {
+        state.badConnectionCount.increment();
+        return;
+      }
+      conn.invalidate();
+      try {
+        if (!conn.getRealConnection().getAutoCommit()) {
+          conn.getRealConnection().rollback();
+        }
+      } finally {
+        conn.getRealConnection().close();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
       }
     }
   }
 
   private PooledConnection popConnection(String username, String password) throws SQLException {
+    if (poolLockFreeEnabled) {
+      return popConnectionLockFree(username, password);
+    }
     boolean countedWait = false;
     PooledConnection conn = null;
+    long startNanos = System.nanoTime();
     long t = System.currentTimeMillis();
     int localBadConnectionCount = 0;
 
     while (conn == null) {
-      synchronized (state) {
+      state.lock.lock();
+      try {
         if (!state.idleConnections.isEmpty()) {
           // Pool has available connection
           conn = state.idleConnections.remove(0);
@@ -441,7 +712,7 @@ public class PooledDataSource implements DataSource {
           }
         } else {
           // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
+          if (state.activeConnections.size() + state.validatingConnections.size() < poolMaximumActiveConnections) {
             // Can create new connection
             conn = new PooledConnection(dataSource.getConnection(), this);
             if (log.isDebugEnabled()) {
@@ -449,13 +720,13 @@ public class PooledDataSource implements DataSource {
             }
           } else {
             // Cannot create new connection
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
+            PooledConnection oldestActiveConnection = state.activeConnections.isEmpty() ? null : state.activeConnections.get(0);
+            long longestCheckoutTime = oldestActiveConnection == null ? 0 : oldestActiveConnection.getCheckoutTime();
+            if (oldestActiveConnection != null && longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
+              state.claimedOverdueConnectionCount.increment();
+              state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+              state.accumulatedCheckoutTime.add(longestCheckoutTime);
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 try {
@@ -475,6 +746,7 @@ public class PooledDataSource implements DataSource {
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+              conn.setStatementCache(oldestActiveConnection.getStatementCache());
               oldestActiveConnection.invalidate();
               if (log.isDebugEnabled()) {
                 log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
@@ -483,15 +755,19 @@ public class PooledDataSource implements DataSource {
               // Must wait
               try {
                 if (!countedWait) {
-                  state.hadToWaitCount++;
+                  state.hadToWaitCount.increment();
                   countedWait = true;
                 }
                 if (log.isDebugEnabled()) {
                   log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
                 }
                 long wt = System.currentTimeMillis();
-                state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                if (poolTimeToWait > 0) {
+                  state.condition.await(poolTimeToWait, TimeUnit.MILLISECONDS);
+                } else {
+                  state.condition.await();
+                }
+                state.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
               } catch (InterruptedException e) {
                 break;
               }
@@ -508,13 +784,13 @@ public class PooledDataSource implements DataSource {
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
             state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            state.requestCount.increment();
+            state.accumulatedRequestTime.add(System.currentTimeMillis() - t);
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
-            state.badConnectionCount++;
+            state.badConnectionCount.increment();
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
@@ -525,6 +801,8 @@ public class PooledDataSource implements DataSource {
             }
           }
         }
+      } finally {
+        state.lock.unlock();
       }
 
     }
@@ -536,9 +814,457 @@ public class PooledDataSource implements DataSource {
       throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
     }
 
+    trackCheckout(conn, startNanos, countedWait);
     return conn;
   }
 
+  private PooledConnection popConnectionLockFree(String username, String password) throws SQLException {
+    ConcurrentConnectionBag bag = state.connectionBag;
+    boolean countedWait = false;
+    long startNanos = System.nanoTime();
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (true) {
+      PooledConnection conn = null;
+      ConcurrentConnectionBag.Entry entry = bag.poll();
+      if (entry != null) {
+        // Pool has available connection
+        conn = entry.getConnection();
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+        }
+      } else if (bag.tryReserve(poolMaximumActiveConnections)) {
+        // Can create new connection
+        try {
+          conn = new PooledConnection(dataSource.getConnection(), this);
+        } catch (SQLException | RuntimeException e) {
+          bag.cancelReservation();
+          throw e;
+        }
+        bag.add(conn, ConcurrentConnectionBag.STATE_IN_USE);
+        if (log.isDebugEnabled()) {
+          log.debug("Created connection " + conn.getRealHashCode() + ".");
+        }
+      } else {
+        conn = claimOverdueConnection(bag);
+        if (conn == null) {
+          // Must wait
+          if (!countedWait) {
+            state.hadToWaitCount.increment();
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          try {
+            entry = bag.borrow(poolTimeToWait > 0 ? poolTimeToWait : Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            break;
+          } finally {
+            state.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
+          }
+          if (entry != null) {
+            conn = entry.getConnection();
+          }
+        }
+      }
+      if (conn != null) {
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.requestCount.increment();
+          state.accumulatedRequestTime.add(System.currentTimeMillis() - t);
+          trackCheckout(conn, startNanos, countedWait);
+          return conn;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+        }
+        state.badConnectionCount.increment();
+        localBadConnectionCount++;
+        if (bag.remove(conn.getBagEntry())) {
+          closeQuietly(conn);
+        }
+        if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+          if (log.isDebugEnabled()) {
+            log.debug("PooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+        }
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+    throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+  }
+
+  private void trackCheckout(PooledConnection conn, long startNanos, boolean waited) {
+    if (poolLeakDetectionThreshold > 0) {
+      conn.setCheckoutTrace(new Exception("Connection " + conn.getRealHashCode() + " was checked out here"));
+    }
+    PoolMetricsTracker tracker = metricsTracker;
+    if (tracker != null) {
+      tracker.connectionAcquired(System.nanoTime() - startNanos, waited);
+    }
+  }
+
+  /**
+   * Reports the connections checked out for longer than the {@link #setPoolLeakDetectionThreshold(int) leak detection
+   * threshold}. Called periodically by the maintenance thread when leak detection is enabled.
+   */
+  protected void detectConnectionLeaks() {
+    int threshold = poolLeakDetectionThreshold;
+    if (threshold <= 0) {
+      return;
+    }
+    List<PooledConnection> checkedOut = new ArrayList<>();
+    if (poolLockFreeEnabled) {
+      for (ConcurrentConnectionBag.Entry entry : state.connectionBag.values()) {
+        if (entry.getState() == ConcurrentConnectionBag.STATE_IN_USE) {
+          checkedOut.add(entry.getConnection());
+        }
+      }
+    } else {
+      state.lock.lock();
+      try {
+        checkedOut.addAll(state.activeConnections);
+      } finally {
+        state.lock.unlock();
+      }
+    }
+    for (PooledConnection conn : checkedOut) {
+      Throwable trace = conn.getCheckoutTrace();
+      long heldMillis = conn.getCheckoutTime();
+      if (trace == null || conn.getCheckoutTimestamp() == 0 || heldMillis <= threshold || !conn.markLeakReported()) {
+        continue;
+      }
+      StringWriter stackTrace = new StringWriter();
+      trace.printStackTrace(new PrintWriter(stackTrace));
+      log.warn("Connection " + conn.getRealHashCode() + " has been checked out for " + heldMillis
+          + " milliseconds, which exceeds the leak detection threshold of " + threshold + " milliseconds. " + stackTrace);
+      PoolMetricsTracker tracker = metricsTracker;
+      if (tracker != null) {
+        tracker.connectionLeaked(heldMillis, trace);
+      }
+    }
+  }
+
+  /**
+   * Takes over the connection that has been checked out the longest if it is overdue.
+   * The previous holder finds its connection invalidated, as with the locking pool.
+   */
+  private PooledConnection claimOverdueConnection(ConcurrentConnectionBag bag) {
+    PooledConnection oldestActiveConnection = null;
+    long longestCheckoutTime = 0;
+    for (ConcurrentConnectionBag.Entry entry : bag.values()) {
+      if (entry.getState() == ConcurrentConnectionBag.STATE_IN_USE) {
+        PooledConnection candidate = entry.getConnection();
+        if (candidate.getCheckoutTimestamp() == 0) {
+          // borrowed but not handed out to the caller yet
+          continue;
+        }
+        long checkoutTime = candidate.getCheckoutTime();
+        if (checkoutTime > longestCheckoutTime) {
+          oldestActiveConnection = candidate;
+          longestCheckoutTime = checkoutTime;
+        }
+      }
+    }
+    if (oldestActiveConnection == null || longestCheckoutTime <= poolMaximumCheckoutTime) {
+      return null;
+    }
+    PooledConnection conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+    conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+    conn.setStatementCache(oldestActiveConnection.getStatementCache());
+    if (!oldestActiveConnection.getBagEntry().compareAndSetConnection(oldestActiveConnection, conn)) {
+      return null;
+    }
+    oldestActiveConnection.invalidate();
+    state.claimedOverdueConnectionCount.increment();
+    state.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+    state.accumulatedCheckoutTime.add(longestCheckoutTime);
+    try {
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      log.debug("Bad connection. Could not roll back");
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private void closeQuietly(PooledConnection conn) {
+    try {
+      Connection realConn = conn.getRealConnection();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  /**
+   * Maintains the idle connections: closes the ones past {@link #setPoolMaximumConnectionLifetime(int) their lifetime}
+   * or {@link #setPoolMaximumIdleTime(int) idle time}, validates the others with {@link #pingConnection(PooledConnection)}
+   * and opens new connections up to {@link #setPoolMinimumIdleConnections(int) the minimum}.
+   * Called periodically by the maintenance thread when {@link #setPoolMaintenanceInterval(int)} is set.
+   */
+  protected void maintainPool() {
+    if (poolLockFreeEnabled) {
+      maintainPoolLockFree();
+      return;
+    }
+
+    int typeCode;
+    List<PooledConnection> expired = new ArrayList<>();
+    List<PooledConnection> toValidate = new ArrayList<>();
+    state.lock.lock();
+    try {
+      typeCode = expectedConnectionTypeCode;
+      int idleCount = state.idleConnections.size();
+      for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+        PooledConnection conn = it.next();
+        if (isPastMaximumLifetime(conn) || (isPastMaximumIdleTime(conn) && idleCount > poolMinimumIdleConnections)) {
+          it.remove();
+          idleCount--;
+          expired.add(conn);
+        } else if (poolPingEnabled && isPingDue(conn)) {
+          // the connections being validated are out of the idle list until they pass, but still count towards the maximum
+          it.remove();
+          state.validatingConnections.add(conn);
+          toValidate.add(conn);
+        }
+      }
+    } finally {
+      state.lock.unlock();
+    }
+
+    for (PooledConnection conn : expired) {
+      conn.invalidate();
+      closeQuietly(conn);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed expired connection " + conn.getRealHashCode() + ".");
+      }
+    }
+    for (PooledConnection conn : toValidate) {
+      boolean good = pingConnection(conn);
+      state.lock.lock();
+      try {
+        state.validatingConnections.remove(conn);
+        state.condition.signalAll();
+        if (good && typeCode == expectedConnectionTypeCode && state.idleConnections.size() < poolMaximumIdleConnections) {
+          state.idleConnections.add(conn);
+          continue;
+        }
+        if (!good) {
+          state.badConnectionCount.increment();
+        }
+      } finally {
+        state.lock.unlock();
+      }
+      conn.invalidate();
+      closeQuietly(conn);
+    }
+
+    while (true) {
+      state.lock.lock();
+      try {
+        if (typeCode != expectedConnectionTypeCode
+            || state.idleConnections.size() >= Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections)
+            || state.idleConnections.size() + state.activeConnections.size()
+                + state.validatingConnections.size() >= poolMaximumActiveConnections) {
+          return;
+        }
+      } finally {
+        state.lock.unlock();
+      }
+      PooledConnection conn = openIdleConnection();
+      if (conn == null) {
+        return;
+      }
+      state.lock.lock();
+      try {
+        if (typeCode == expectedConnectionTypeCode && state.idleConnections.size() < poolMaximumIdleConnections) {
+          state.idleConnections.add(conn);
+          state.condition.signalAll();
+          continue;
+        }
+      } finally {
+        state.lock.unlock();
+      }
+      closeQuietly(conn);
+      return;
+    }
+  }
+
+  private void maintainPoolLockFree() {
+    ConcurrentConnectionBag bag = state.connectionBag;
+    int idleCount = bag.getIdleCount();
+    for (ConcurrentConnectionBag.Entry entry : bag.values()) {
+      if (!bag.reserve(entry)) {
+        continue;
+      }
+      PooledConnection conn = entry.getConnection();
+      boolean expired = isPastMaximumLifetime(conn) || (isPastMaximumIdleTime(conn) && idleCount > poolMinimumIdleConnections);
+      if (!expired && pingConnection(conn)) {
+        bag.unreserve(entry);
+        continue;
+      }
+      if (!expired) {
+        state.badConnectionCount.increment();
+      }
+      idleCount--;
+      if (bag.remove(entry)) {
+        conn.invalidate();
+        closeQuietly(conn);
+      }
+    }
+
+    while (bag.getIdleCount() < Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections)
+        && bag.tryReserve(poolMaximumActiveConnections)) {
+      PooledConnection conn = openIdleConnection();
+      if (conn == null) {
+        bag.cancelReservation();
+        return;
+      }
+      bag.add(conn, ConcurrentConnectionBag.STATE_NOT_IN_USE);
+    }
+  }
+
+  /**
+   * Opens and validates connections until the pool holds the given number of idle connections (never more than
+   * {@link #setPoolMaximumIdleConnections(int) the maximum idle connections}), so that the first requests do not pay
+   * for opening them.
+   *
+   * @param connections the number of idle connections wanted
+   * @param parallelism the number of connections opened concurrently
+   * @param timeoutMillis the time budget, zero or less for no limit
+   * @throws SQLException if a connection could not be opened or validated, or if the time budget was exceeded
+   * @since 3.5.2
+   */
+  public void prefill(int connections, int parallelism, long timeoutMillis) throws SQLException {
+    int missing = Math.min(connections, poolMaximumIdleConnections) - state.getIdleConnectionCount();
+    if (missing <= 0) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    AtomicBoolean abandoned = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, missing)), runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-prefill");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < missing; i++) {
+        futures.add(executor.submit(() -> {
+          PooledConnection conn = new PooledConnection(dataSource.getConnection(), this);
+          if (!pingConnection(conn, true)) {
+            closeQuietly(conn);
+            throw new SQLException("PooledDataSource: Connection " + conn.getRealHashCode() + " failed validation.");
+          }
+          if (abandoned.get() || !addIdleConnection(conn)) {
+            closeQuietly(conn);
+          }
+          return null;
+        }));
+      }
+      int opened = 0;
+      for (Future<Void> future : futures) {
+        long remaining = timeoutMillis > 0 ? timeoutMillis - (System.currentTimeMillis() - start) : Long.MAX_VALUE;
+        try {
+          future.get(remaining, TimeUnit.MILLISECONDS);
+          opened++;
+        } catch (TimeoutException e) {
+          abandoned.set(true);
+          throw new SQLException("PooledDataSource: Could not prefill " + missing + " connections within " + timeoutMillis
+              + " milliseconds (" + opened + " opened).", e);
+        } catch (ExecutionException e) {
+          abandoned.set(true);
+          Throwable cause = e.getCause();
+          if (cause instanceof SQLException) {
+            throw (SQLException) cause;
+          }
+          throw new SQLException("PooledDataSource: Could not prefill the pool. Cause: " + cause, cause);
+        } catch (InterruptedException e) {
+          abandoned.set(true);
+          Thread.currentThread().interrupt();
+          throw new SQLException("PooledDataSource: Interrupted while prefilling the pool.", e);
+        }
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Prefilled " + opened + " connections in " + (System.currentTimeMillis() - start) + " milliseconds.");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private boolean addIdleConnection(PooledConnection conn) {
+    if (poolLockFreeEnabled) {
+      ConcurrentConnectionBag bag = state.connectionBag;
+      if (bag.getIdleCount() >= poolMaximumIdleConnections
+          || !bag.tryReserve(poolMaximumActiveConnections)) {
+        return false;
+      }
+      bag.add(conn, ConcurrentConnectionBag.STATE_NOT_IN_USE);
+      return true;
+    }
+    state.lock.lock();
+    try {
+      if (state.idleConnections.size() >= poolMaximumIdleConnections
+          || state.idleConnections.size() + state.activeConnections.size()
+              + state.validatingConnections.size() >= poolMaximumActiveConnections) {
+        return false;
+      }
+      state.idleConnections.add(conn);
+      state.condition.signalAll();
+      return true;
+    } finally {
+      state.lock.unlock();
+    }
+  }
+
+  private PooledConnection openIdleConnection() {
+    try {
+      PooledConnection conn = new PooledConnection(dataSource.getConnection(), this);
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+      }
+      return conn;
+    } catch (SQLException e) {
+      log.warn("Could not open an idle connection: " + e.getMessage());
+      return null;
+    }
+  }
+
+  private boolean isPingDue(PooledConnection conn) {
+    return poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUseOrValidation() > poolPingConnectionsNotUsedFor;
+  }
+
+  private boolean isPastMaximumLifetime(PooledConnection conn) {
+    return poolMaximumConnectionLifetime > 0 && conn.getAge() > poolMaximumConnectionLifetime;
+  }
+
+  private boolean isPastMaximumIdleTime(PooledConnection conn) {
+    return poolMaximumIdleTime > 0 && conn.getIdleTime() > poolMaximumIdleTime;
+  }
+
   /**
    * Method to check to see if a connection is still usable
    *
@@ -546,6 +1272,10 @@ public class PooledDataSource implements DataSource {
    * @return True if the connection is still usable
    */
   protected boolean pingConnection(PooledConnection conn) {
+    return pingConnection(conn, false);
+  }
+
+  private boolean pingConnection(PooledConnection conn, boolean force) {
     boolean result = true;
 
     try {
@@ -559,7 +1289,7 @@ public class PooledDataSource implements DataSource {
 
     if (result) {
       if (poolPingEnabled) {
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+        if (force || isPingDue(conn)) {
           try {
             if (log.isDebugEnabled()) {
               log.debug("Testing connection " + conn.getRealHashCode() + " ...");
@@ -572,6 +1302,7 @@ public class PooledDataSource implements DataSource {
               realConn.rollback();
             }
             result = true;
+            conn.setLastValidatedTimestamp(System.currentTimeMillis());
             if (log.isDebugEnabled()) {
               log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
             }
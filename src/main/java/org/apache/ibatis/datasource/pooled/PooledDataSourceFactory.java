@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2019 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,15 +15,53 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.apache.ibatis.datasource.DataSourceException;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 
 /**
+ * Besides the {@link PooledDataSource} properties, this factory accepts:
+ * <ul>
+ * <li>{@code prefill} - open and validate {@code poolMinimumIdleConnections} connections as soon as the properties
+ * are set, i.e. while the configuration is built (default: false)</li>
+ * <li>{@code prefillThreads} - the number of connections opened concurrently (default: 1)</li>
+ * <li>{@code prefillTimeout} - the time budget in milliseconds; the build fails if it is exceeded (default: 30000)</li>
+ * </ul>
+ *
  * @author Clinton Begin
  */
 public class PooledDataSourceFactory extends UnpooledDataSourceFactory {
 
+  private static final String PREFILL_PROPERTY = "prefill";
+  private static final String PREFILL_THREADS_PROPERTY = "prefillThreads";
+  private static final String PREFILL_TIMEOUT_PROPERTY = "prefillTimeout";
+
   public PooledDataSourceFactory() {
     this.dataSource = new PooledDataSource();
   }
 
+  @Override
+  public void setProperties(Properties properties) {
+    Properties dataSourceProperties = new Properties();
+    for (Object key : properties.keySet()) {
+      if (!PREFILL_PROPERTY.equals(key) && !PREFILL_THREADS_PROPERTY.equals(key) && !PREFILL_TIMEOUT_PROPERTY.equals(key)) {
+        dataSourceProperties.put(key, properties.get(key));
+      }
+    }
+    super.setProperties(dataSourceProperties);
+
+    if (Boolean.parseBoolean(properties.getProperty(PREFILL_PROPERTY))) {
+      PooledDataSource pooledDataSource = (PooledDataSource) dataSource;
+      int threads = Integer.parseInt(properties.getProperty(PREFILL_THREADS_PROPERTY, "1"));
+      long timeout = Long.parseLong(properties.getProperty(PREFILL_TIMEOUT_PROPERTY, "30000"));
+      try {
+        pooledDataSource.prefill(pooledDataSource.getPoolMinimumIdleConnections(), threads, timeout);
+      } catch (SQLException e) {
+        throw new DataSourceException("Error prefilling the connection pool. Cause: " + e, e);
+      }
+    }
+  }
+
 }
@@ -0,0 +1,337 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Idle prepared statements of one physical connection, kept across checkouts when
+ * {@link PooledDataSource#setPoolPreparedStatementCacheSize(int)} is set.
+ * <p>
+ * {@code prepareStatement} calls on the pooled connection are served from this cache, unless the idle statement was
+ * closed by the driver. Closing the returned statement closes the result sets it opened, clears its parameters,
+ * restores the settings changed while it was used and puts it back as the most recently used entry, closing the least
+ * recently used one when the cache is full. A statement whose cursor name was set is not cached again, as the
+ * name cannot be reset. The cache moves to the new
+ * {@link PooledConnection} every time the pool swaps the wrapper of the physical connection.
+ */
+final class PreparedStatementCache {
+
+  private static final Class<?>[] IFACES = new Class<?>[] { PreparedStatement.class };
+
+  private final Connection realConnection;
+  private final int maxSize;
+  private final StatementCacheMetrics metrics;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<Key, PreparedStatement> idleStatements = new LinkedHashMap<>(16, 0.75f, true);
+
+  PreparedStatementCache(Connection realConnection, int maxSize, StatementCacheMetrics metrics) {
+    this.realConnection = realConnection;
+    this.maxSize = maxSize;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Takes an idle statement prepared with the same arguments, or prepares a new one.
+   *
+   * @param connection the pooled connection handing out the statement
+   * @param method one of the {@code Connection.prepareStatement} methods
+   * @param args the arguments, the SQL first
+   * @return a statement that returns to this cache when closed
+   */
+  PreparedStatement prepare(PooledConnection connection, Method method, Object[] args) throws Throwable {
+    final Key key = new Key(args);
+    final String sql = (String) args[0];
+    PreparedStatement statement;
+    lock.lock();
+    try {
+      statement = idleStatements.remove(key);
+    } finally {
+      lock.unlock();
+    }
+    if (statement != null && isClosed(statement)) {
+      // closed by the driver while idle, e.g. after a connection failure
+      closeQuietly(statement);
+      statement = null;
+    }
+    if (statement != null) {
+      metrics.recordHit(sql);
+    } else {
+      metrics.recordMiss(sql);
+      try {
+        statement = (PreparedStatement) method.invoke(realConnection, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+    CachedStatement handler = new CachedStatement(key, statement, connection.getProxyConnection());
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), IFACES, handler);
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return idleStatements.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(Key key, PreparedStatement statement) {
+    List<PreparedStatement> evicted = new ArrayList<>();
+    lock.lock();
+    try {
+      PreparedStatement previous = idleStatements.put(key, statement);
+      if (previous != null) {
+        // the same SQL was open twice, keep one
+        evicted.add(previous);
+      }
+      for (Iterator<PreparedStatement> it = idleStatements.values().iterator(); idleStatements.size() > maxSize;) {
+        evicted.add(it.next());
+        it.remove();
+        metrics.recordEviction();
+      }
+    } finally {
+      lock.unlock();
+    }
+    for (PreparedStatement stmt : evicted) {
+      closeQuietly(stmt);
+    }
+  }
+
+  private static boolean isClosed(PreparedStatement statement) {
+    try {
+      return statement.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+
+  private static void closeQuietly(AutoCloseable resource) {
+    try {
+      resource.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private static final class Key {
+
+    private final Object[] args;
+    private final int hashCode;
+
+    private Key(Object[] args) {
+      this.args = args.clone();
+      this.hashCode = Arrays.deepHashCode(this.args);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && Arrays.deepEquals(args, ((Key) obj).args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private final class CachedStatement implements InvocationHandler {
+
+    private final Key key;
+    private final PreparedStatement statement;
+    private final Connection connection;
+    // original values of the settings changed by the user of the statement, restored when it is returned
+    private Map<String, Object> changedSettings;
+    private List<ResultSet> resultSets;
+    private boolean batched;
+    private boolean cacheable = true;
+    private boolean closed;
+
+    private CachedStatement(Key key, PreparedStatement statement, Connection connection) {
+      this.key = key;
+      this.statement = statement;
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      try {
+        if (Object.class.equals(method.getDeclaringClass())) {
+          return method.invoke(statement, args);
+        }
+        switch (method.getName()) {
+          case "close":
+            close();
+            return null;
+          case "isClosed":
+            return closed || statement.isClosed();
+          case "getConnection":
+            return connection;
+          case "closeOnCompletion":
+          case "setCursorName":
+            // the driver would close the statement behind the cache's back, and a cursor name cannot be reset
+            cacheable = false;
+            break;
+          case "addBatch":
+            batched = true;
+            break;
+          case "setQueryTimeout":
+          case "setFetchSize":
+          case "setFetchDirection":
+          case "setMaxRows":
+          case "setMaxFieldSize":
+          case "setEscapeProcessing":
+          case "setPoolable":
+            rememberSetting(method.getName());
+            break;
+          case "setLargeMaxRows":
+            // shares its limit with setMaxRows
+            rememberSetting("setMaxRows");
+            break;
+          default:
+            break;
+        }
+        if (closed) {
+          throw new SQLException("Statement is closed.");
+        }
+        final Object result = method.invoke(statement, args);
+        if (result instanceof ResultSet) {
+          if (resultSets == null) {
+            resultSets = new ArrayList<>();
+          }
+          resultSets.add((ResultSet) result);
+        }
+        return result;
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+    private void rememberSetting(String setter) throws SQLException {
+      if (changedSettings == null) {
+        changedSettings = new HashMap<>();
+      }
+      if (!changedSettings.containsKey(setter)) {
+        switch (setter) {
+          case "setQueryTimeout":
+            changedSettings.put(setter, statement.getQueryTimeout());
+            break;
+          case "setFetchSize":
+            changedSettings.put(setter, statement.getFetchSize());
+            break;
+          case "setFetchDirection":
+            changedSettings.put(setter, statement.getFetchDirection());
+            break;
+          case "setMaxRows":
+            changedSettings.put(setter, statement.getMaxRows());
+            break;
+          case "setMaxFieldSize":
+            changedSettings.put(setter, statement.getMaxFieldSize());
+            break;
+          case "setEscapeProcessing":
+            // no getter, escape processing is on by default
+            changedSettings.put(setter, Boolean.TRUE);
+            break;
+          default:
+            changedSettings.put(setter, statement.isPoolable());
+            break;
+        }
+      }
+    }
+
+    private void restoreSettings() throws SQLException {
+      if (changedSettings == null) {
+        return;
+      }
+      for (Map.Entry<String, Object> setting : changedSettings.entrySet()) {
+        switch (setting.getKey()) {
+          case "setQueryTimeout":
+            statement.setQueryTimeout((Integer) setting.getValue());
+            break;
+          case "setFetchSize":
+            statement.setFetchSize((Integer) setting.getValue());
+            break;
+          case "setFetchDirection":
+            statement.setFetchDirection((Integer) setting.getValue());
+            break;
+          case "setMaxRows":
+            statement.setMaxRows((Integer) setting.getValue());
+            break;
+          case "setMaxFieldSize":
+            statement.setMaxFieldSize((Integer) setting.getValue());
+            break;
+          case "setEscapeProcessing":
+            statement.setEscapeProcessing((Boolean) setting.getValue());
+            break;
+          default:
+            statement.setPoolable((Boolean) setting.getValue());
+            break;
+        }
+      }
+      changedSettings = null;
+    }
+
+    private void closeResultSets() {
+      if (resultSets != null) {
+        for (ResultSet resultSet : resultSets) {
+          closeQuietly(resultSet);
+        }
+        resultSets = null;
+      }
+    }
+
+    private void close() throws SQLException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      closeResultSets();
+      if (!cacheable || statement.isClosed()) {
+        statement.close();
+        return;
+      }
+      try {
+        statement.clearParameters();
+        if (batched) {
+          statement.clearBatch();
+        }
+        restoreSettings();
+      } catch (SQLException e) {
+        closeQuietly(statement);
+        return;
+      }
+      release(key, statement);
+    }
+  }
+
+}
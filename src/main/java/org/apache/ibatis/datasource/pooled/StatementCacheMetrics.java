@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit and miss counts of the prepared statement caches of a {@link PooledDataSource}, in total and per SQL.
+ * Only the first {@value #MAX_TRACKED_STATEMENTS} distinct SQL strings are counted one by one, the others only in the
+ * totals, so that generated SQL does not make the metrics grow without bounds.
+ *
+ * @see PooledDataSource#setPoolPreparedStatementCacheSize(int)
+ * @since 3.5.2
+ */
+public class StatementCacheMetrics {
+
+  static final int MAX_TRACKED_STATEMENTS = 1000;
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final ConcurrentMap<String, StatementStatistics> statements = new ConcurrentHashMap<>();
+
+  void recordHit(String sql) {
+    hitCount.increment();
+    StatementStatistics statistics = getStatistics(sql);
+    if (statistics != null) {
+      statistics.hitCount.increment();
+    }
+  }
+
+  void recordMiss(String sql) {
+    missCount.increment();
+    StatementStatistics statistics = getStatistics(sql);
+    if (statistics != null) {
+      statistics.missCount.increment();
+    }
+  }
+
+  void recordEviction() {
+    evictionCount.increment();
+  }
+
+  private StatementStatistics getStatistics(String sql) {
+    StatementStatistics statistics = statements.get(sql);
+    if (statistics == null && statements.size() < MAX_TRACKED_STATEMENTS) {
+      statistics = statements.computeIfAbsent(sql, StatementStatistics::new);
+    }
+    return statistics;
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * The number of idle statements closed because a cache was full.
+   *
+   * @return the count
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * The counts of one SQL string.
+   *
+   * @param sql the SQL as passed to {@code prepareStatement}
+   * @return the counts, or null if the SQL was never prepared or is not tracked
+   */
+  public StatementStatistics getStatementStatistics(String sql) {
+    return statements.get(sql);
+  }
+
+  /**
+   * The counts of all tracked SQL strings, the most used first.
+   *
+   * @return the counts
+   */
+  public List<StatementStatistics> getStatementStatistics() {
+    List<StatementStatistics> list = new ArrayList<>(statements.values());
+    list.sort(Comparator.comparingLong((StatementStatistics s) -> s.getHitCount() + s.getMissCount()).reversed());
+    return list;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("\n===STATEMENT CACHE METRICS=====================================");
+    builder.append("\n hitCount                       ").append(getHitCount());
+    builder.append("\n missCount                      ").append(getMissCount());
+    builder.append("\n evictionCount                  ").append(getEvictionCount());
+    builder.append("\n===============================================================");
+    return builder.toString();
+  }
+
+  public static final class StatementStatistics {
+
+    private final String sql;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private StatementStatistics(String sql) {
+      this.sql = sql;
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    /**
+     * The number of times an idle statement was reused.
+     *
+     * @return the count
+     */
+    public long getHitCount() {
+      return hitCount.sum();
+    }
+
+    /**
+     * The number of times the statement had to be prepared by the driver.
+     *
+     * @return the count
+     */
+    public long getMissCount() {
+      return missCount.sum();
+    }
+
+    @Override
+    public String toString() {
+      return sql + " (hits: " + getHitCount() + ", misses: " + getMissCount() + ")";
+    }
+  }
+
+}
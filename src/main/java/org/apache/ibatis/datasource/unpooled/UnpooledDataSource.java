@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -57,6 +58,7 @@ public class UnpooledDataSource implements DataSource {
   private ClassLoader driverClassLoader;
   private Properties driverProperties;
   private static Map<String, Driver> registeredDrivers = new ConcurrentHashMap<>();
+  private final ReentrantLock driverLock = new ReentrantLock();
 
   private String driver;
   private String url;
@@ -156,8 +158,13 @@ public class UnpooledDataSource implements DataSource {
     return driver;
   }
 
-  public synchronized void setDriver(String driver) {
-    this.driver = driver;
+  public void setDriver(String driver) {
+    driverLock.lock();
+    try {
+      this.driver = driver;
+    } finally {
+      driverLock.unlock();
+    }
   }
 
   public String getUrl() {
@@ -250,23 +257,28 @@ public class UnpooledDataSource implements DataSource {
     return connection;
   }
 
-  private synchronized void initializeDriver() throws SQLException {
-    if (!registeredDrivers.containsKey(driver)) {
-      Class<?> driverType;
-      try {
-        if (driverClassLoader != null) {
-          driverType = Class.forName(driver, true, driverClassLoader);
-        } else {
-          driverType = Resources.classForName(driver);
+  private void initializeDriver() throws SQLException {
+    driverLock.lock();
+    try {
+      if (!registeredDrivers.containsKey(driver)) {
+        Class<?> driverType;
+        try {
+          if (driverClassLoader != null) {
+            driverType = Class.forName(driver, true, driverClassLoader);
+          } else {
+            driverType = Resources.classForName(driver);
+          }
+          // DriverManager requires the driver to be loaded via the system ClassLoader.
+          // http://www.kfu.com/~nsayer/Java/dyn-jdbc.html
+          Driver driverInstance = (Driver)driverType.newInstance();
+          DriverManager.registerDriver(new DriverProxy(driverInstance));
+          registeredDrivers.put(driver, driverInstance);
+        } catch (Exception e) {
+          throw new SQLException("Error setting driver on UnpooledDataSource. Cause: " + e);
         }
-        // DriverManager requires the driver to be loaded via the system ClassLoader.
-        // http://www.kfu.com/~nsayer/Java/dyn-jdbc.html
-        Driver driverInstance = (Driver)driverType.newInstance();
-        DriverManager.registerDriver(new DriverProxy(driverInstance));
-        registeredDrivers.put(driver, driverInstance);
-      } catch (Exception e) {
-        throw new SQLException("Error setting driver on UnpooledDataSource. Cause: " + e);
       }
+    } finally {
+      driverLock.unlock();
     }
   }
 
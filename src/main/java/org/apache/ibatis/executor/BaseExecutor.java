@@ -269,8 +269,10 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
+    // 参数集合
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     // 创建缓存key
-    CacheKey cacheKey = new CacheKey();
+    CacheKey cacheKey = new CacheKey(5 + parameterMappings.size());
     // mapper具体的映射id
     cacheKey.update(ms.getId());
     // 查询开始索引
@@ -279,8 +281,6 @@ public abstract class BaseExecutor implements Executor {
     cacheKey.update(rowBounds.getLimit());
     // sql语句
     cacheKey.update(boundSql.getSql());
-    // 参数集合
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -20,20 +20,33 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
  * @author Jeff Butler
@@ -46,8 +59,19 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  // buffered rows of the batches rewritten into multi-row inserts, null for plain JDBC batches
+  private final List<MultiRowInsert> multiRowInserts = new ArrayList<>();
+  // results of the batches executed because a size limit was reached, returned by the next flush
+  private final List<BatchResult> flushedResults = new ArrayList<>();
+  // open batches by statement id and SQL, only used when batchGroupingEnabled is set
+  private final Map<String, Integer> batchIndexes = new HashMap<>();
   private String currentSql;
   private MappedStatement currentStatement;
+  private long pendingBytes;
+  // the last flush handed to another thread, kept after a failure until the transaction is rolled back
+  private CompletableFuture<List<BatchResult>> pendingFlush;
+  // serializes opening the connection with a pending flush; a monitor here would pin virtual threads
+  private final ReentrantLock connectionLock = new ReentrantLock();
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -59,27 +83,117 @@ public class BatchExecutor extends BaseExecutor {
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
-    final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
+    final BatchResult batchResult;
+    final int index = findBatch(ms, sql);
+    if (index >= 0 && multiRowInserts.get(index) != null) {
+      multiRowInserts.get(index).addRow(boundSql);
+      batchResult = batchResultList.get(index);
+      batchResult.addParameterObject(parameterObject);
+    } else if (index >= 0) {
+      final Statement stmt = statementList.get(index);
       applyTransactionTimeout(stmt);
       handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+      batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
+      handler.batch(stmt);
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      handler.parameterize(stmt);    //fix Issues 322
+      final MultiRowInsert multiRowInsert = configuration.isBatchInsertRewriteEnabled() ? MultiRowInsert.parse(ms, boundSql) : null;
+      final Statement stmt;
+      if (multiRowInsert != null) {
+        // the statement is prepared when the batch is executed and the number of rows is known
+        stmt = null;
+        multiRowInsert.addRow(boundSql);
+      } else {
+        Connection connection = getConnection(ms.getStatementLog());
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        handler.parameterize(stmt);    //fix Issues 322
+      }
       currentSql = sql;
       currentStatement = ms;
+      if (configuration.isBatchGroupingEnabled()) {
+        batchIndexes.put(ms.getId() + "\n" + sql, statementList.size());
+      }
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      multiRowInserts.add(multiRowInsert);
+      batchResult = new BatchResult(ms, sql, parameterObject);
+      batchResultList.add(batchResult);
+      if (stmt != null) {
+        handler.batch(stmt);
+      }
+    }
+    if (isBatchFull(configuration, batchResult, boundSql, parameterObject)) {
+      flushBatches();
     }
-    handler.batch(stmt);
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  private int findBatch(MappedStatement ms, String sql) {
+    if (ms.getConfiguration().isBatchGroupingEnabled()) {
+      final Integer index = batchIndexes.get(ms.getId() + "\n" + sql);
+      return index != null ? index : -1;
+    }
+    return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+  }
+
+  private boolean isBatchFull(Configuration configuration, BatchResult batchResult, BoundSql boundSql, Object parameterObject) {
+    final int maxBatchSize = configuration.getMaxBatchSize();
+    if (maxBatchSize > 0 && batchResult.getParameterObjects().size() >= maxBatchSize) {
+      return true;
+    }
+    final long maxBatchBytes = configuration.getMaxBatchBytes();
+    if (maxBatchBytes > 0) {
+      pendingBytes += estimateSize(configuration, boundSql, parameterObject);
+      return pendingBytes >= maxBatchBytes;
+    }
+    return false;
+  }
+
+  /**
+   * Roughly estimates the memory held by the parameters of one batched row, reading them the way
+   * {@link org.apache.ibatis.scripting.defaults.DefaultParameterHandler} does.
+   */
+  private long estimateSize(Configuration configuration, BoundSql boundSql, Object parameterObject) {
+    final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    MetaObject metaObject = null;
+    long size = 0;
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      final String propertyName = parameterMapping.getProperty();
+      final Object value;
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      if (value instanceof CharSequence) {
+        size += 2L * ((CharSequence) value).length();
+      } else if (value instanceof byte[]) {
+        size += ((byte[]) value).length;
+      } else {
+        size += 8;
+      }
+    }
+    return size;
+  }
+
+  private void flushBatches() throws SQLException {
+    try {
+      awaitPendingFlush();
+      executeBatches(statementList, batchResultList, multiRowInserts, flushedResults);
+    } finally {
+      closeBatches();
+    }
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -112,54 +226,205 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
       if (isRollback) {
+        discardPendingFlush();
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
-        try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
-          }
-          // Close statement to close cursor #1109
+      awaitPendingFlush();
+      List<BatchResult> results = new ArrayList<>(flushedResults);
+      executeBatches(statementList, batchResultList, multiRowInserts, results);
+      return results;
+    } finally {
+      flushedResults.clear();
+      closeBatches();
+    }
+  }
+
+  /**
+   * Executes the pending batches on the given executor and returns at once, so that the caller can queue the next rows
+   * while the previous ones are sent. Flushes run one after another in the order they were requested and a flush is
+   * skipped if an earlier one failed. Synchronous flushes, queries and commits wait for the pending flushes and
+   * rethrow their failure until the transaction is rolled back. The JDBC driver must allow a connection to prepare
+   * statements while another thread executes a batch on it.
+   *
+   * @since 3.5.2
+   */
+  @Override
+  public CompletableFuture<List<BatchResult>> flushStatementsAsync(Executor executor) {
+    if (isClosed()) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    final List<Statement> statements = new ArrayList<>(statementList);
+    final List<BatchResult> batchResults = new ArrayList<>(batchResultList);
+    final List<MultiRowInsert> inserts = new ArrayList<>(multiRowInserts);
+    final List<BatchResult> results = new ArrayList<>(flushedResults);
+    flushedResults.clear();
+    resetBatches();
+    final CompletableFuture<List<BatchResult>> previous = pendingFlush != null ? pendingFlush : CompletableFuture.completedFuture(null);
+    pendingFlush = previous.handleAsync((previousResults, failure) -> {
+      try {
+        if (failure != null) {
+          throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+        }
+        executeBatches(statements, batchResults, inserts, results);
+        return results;
+      } catch (SQLException e) {
+        throw new CompletionException(e);
+      } finally {
+        for (Statement stmt : statements) {
           closeStatement(stmt);
-        } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
-          }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
         }
-        results.add(batchResult);
       }
-      return results;
+    }, executor);
+    return pendingFlush;
+  }
+
+  /**
+   * Opens the connection of the transaction under a lock, since a pending asynchronous flush may ask for it from
+   * another thread at the same time. The lock only covers opening the connection: once it is open, {@link #doUpdate}
+   * prepares and parameterizes statements on the same {@link Connection} while the flush thread runs
+   * {@code executeBatch} on it, which is why {@link #flushStatementsAsync(Executor)} requires a driver that allows it.
+   */
+  @Override
+  protected Connection getConnection(Log statementLog) throws SQLException {
+    connectionLock.lock();
+    try {
+      return super.getConnection(statementLog);
     } finally {
-      for (Statement stmt : statementList) {
+      connectionLock.unlock();
+    }
+  }
+
+  private void awaitPendingFlush() throws SQLException {
+    final CompletableFuture<List<BatchResult>> flush = pendingFlush;
+    if (flush == null) {
+      return;
+    }
+    try {
+      flush.join();
+    } catch (CompletionException | CancellationException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw e;
+    }
+    pendingFlush = null;
+  }
+
+  private void discardPendingFlush() {
+    final CompletableFuture<List<BatchResult>> flush = pendingFlush;
+    pendingFlush = null;
+    if (flush != null) {
+      try {
+        flush.join();
+      } catch (CompletionException | CancellationException e) {
+        // rolled back anyway, the failure was reported through the future
+      }
+    }
+  }
+
+  private void executeBatches(List<Statement> statements, List<BatchResult> batchResults, List<MultiRowInsert> inserts,
+      List<BatchResult> results) throws SQLException {
+    for (int i = 0, n = statements.size(); i < n; i++) {
+      BatchResult batchResult = batchResults.get(i);
+      MultiRowInsert multiRowInsert = inserts.get(i);
+      if (multiRowInsert != null) {
+        try {
+          executeMultiRowInsert(multiRowInsert, batchResult);
+        } catch (SQLException e) {
+          throw newBatchExecutorException(batchResult, results,
+              new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), new int[0], e));
+        }
+        results.add(batchResult);
+        continue;
+      }
+      Statement stmt = statements.get(i);
+      applyTransactionTimeout(stmt);
+      try {
+        batchResult.setUpdateCounts(stmt.executeBatch());
+        MappedStatement ms = batchResult.getMappedStatement();
+        List<Object> parameterObjects = batchResult.getParameterObjects();
+        KeyGenerator keyGenerator = ms.getKeyGenerator();
+        if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+          Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+          jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+        } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+          for (Object parameter : parameterObjects) {
+            keyGenerator.processAfter(this, ms, stmt, parameter);
+          }
+        }
+        // Close statement to close cursor #1109
+        closeStatement(stmt);
+      } catch (BatchUpdateException e) {
+        throw newBatchExecutorException(batchResult, results, e);
+      }
+      results.add(batchResult);
+    }
+  }
+
+  /**
+   * Sends the buffered rows as multi-row inserts, each through a statement handler built for the rewritten statement.
+   * Each row is reported with an update count of 1 when the driver reports one row per row, and with
+   * {@link Statement#SUCCESS_NO_INFO} otherwise.
+   */
+  private void executeMultiRowInsert(MultiRowInsert multiRowInsert, BatchResult batchResult) throws SQLException {
+    final MappedStatement ms = multiRowInsert.getMappedStatement();
+    final Configuration configuration = ms.getConfiguration();
+    final List<Object> parameterObjects = batchResult.getParameterObjects();
+    final int rowCount = multiRowInsert.size();
+    final int rowsPerStatement = multiRowInsert.getRowsPerStatement();
+    final int[] updateCounts = new int[rowCount];
+    final Connection connection = getConnection(ms.getStatementLog());
+    for (int from = 0; from < rowCount; from += rowsPerStatement) {
+      final int to = Math.min(rowCount, from + rowsPerStatement);
+      final BoundSql boundSql = multiRowInsert.getBoundSql(parameterObjects, from, to);
+      final StatementHandler handler = configuration.newStatementHandler(this, ms, boundSql.getParameterObject(), RowBounds.DEFAULT, null, boundSql);
+      Statement stmt = null;
+      try {
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        handler.parameterize(stmt);
+        // the key generator assigns the generated keys to the rows of the statement
+        final int count = handler.update(stmt);
+        Arrays.fill(updateCounts, from, to, count == to - from ? 1 : Statement.SUCCESS_NO_INFO);
+      } finally {
         closeStatement(stmt);
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
     }
+    batchResult.setUpdateCounts(updateCounts);
+  }
+
+  private BatchExecutorException newBatchExecutorException(BatchResult batchResult, List<BatchResult> results, BatchUpdateException e) {
+    StringBuilder message = new StringBuilder();
+    message.append(batchResult.getMappedStatement().getId())
+        .append(" (batch index #")
+        .append(results.size() + 1)
+        .append(")")
+        .append(" failed.");
+    if (!results.isEmpty()) {
+      message.append(" ")
+          .append(results.size())
+          .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+    }
+    return new BatchExecutorException(message.toString(), e, results, batchResult);
+  }
+
+  private void closeBatches() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
+    }
+    resetBatches();
+  }
+
+  private void resetBatches() {
+    currentSql = null;
+    statementList.clear();
+    multiRowInserts.clear();
+    batchResultList.clear();
+    batchIndexes.clear();
+    pendingBytes = 0;
   }
 
 }
@@ -17,6 +17,7 @@ package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
@@ -137,6 +138,11 @@ public class CachingExecutor implements Executor {
     return delegate.flushStatements();
   }
 
+  @Override
+  public CompletableFuture<List<BatchResult>> flushStatementsAsync(java.util.concurrent.Executor executor) {
+    return delegate.flushStatementsAsync(executor);
+  }
+
   @Override
   public void commit(boolean required) throws SQLException {
     delegate.commit(required);
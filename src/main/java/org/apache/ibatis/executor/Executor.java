@@ -17,6 +17,7 @@ package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
@@ -44,6 +45,21 @@ public interface Executor {
 
   List<BatchResult> flushStatements() throws SQLException;
 
+  /**
+   * Flushes batch statements on the given executor. Executors that do not batch statements flush synchronously.
+   *
+   * @since 3.5.2
+   */
+  default CompletableFuture<List<BatchResult>> flushStatementsAsync(java.util.concurrent.Executor executor) {
+    final CompletableFuture<List<BatchResult>> future = new CompletableFuture<>();
+    try {
+      future.complete(flushStatements());
+    } catch (SQLException | RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   void commit(boolean required) throws SQLException;
 
   void rollback(boolean required) throws SQLException;
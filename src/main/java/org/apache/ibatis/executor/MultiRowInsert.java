@@ -0,0 +1,217 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * Rows of an {@code INSERT ... VALUES (...)} statement buffered by the {@link BatchExecutor} when
+ * {@link Configuration#isBatchInsertRewriteEnabled()} is set. The rows are sent as multi-row
+ * {@code INSERT ... VALUES (...), (...)} statements holding at most {@link Configuration#getBatchInsertMaxParameters()}
+ * parameters each.
+ */
+final class MultiRowInsert {
+
+  private final MappedStatement mappedStatement;
+  private final String head;
+  private final String values;
+  private final List<BoundSql> rows = new ArrayList<>();
+
+  private MultiRowInsert(MappedStatement mappedStatement, String head, String values) {
+    this.mappedStatement = mappedStatement;
+    this.head = head;
+    this.values = values;
+  }
+
+  /**
+   * Returns an empty buffer for the statement, or null if the statement cannot be rewritten. Only prepared
+   * {@code INSERT} statements ending with a single {@code VALUES} group whose placeholders are all IN parameters qualify,
+   * and the only key generator allowed is {@link Jdbc3KeyGenerator}.
+   */
+  static MultiRowInsert parse(MappedStatement ms, BoundSql boundSql) {
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT || ms.getStatementType() != StatementType.PREPARED) {
+      return null;
+    }
+    final KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (!NoKeyGenerator.class.equals(keyGenerator.getClass()) && !Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+      return null;
+    }
+    final List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      if (parameterMapping.getMode() != ParameterMode.IN) {
+        return null;
+      }
+    }
+    final int parameterCount = parameterMappings.size();
+    if (parameterCount == 0 || parameterCount > ms.getConfiguration().getBatchInsertMaxParameters()) {
+      return null;
+    }
+
+    final String sql = boundSql.getSql().trim();
+    final int valuesStart = findValuesGroup(sql);
+    if (valuesStart < 0 || countPlaceholders(sql, valuesStart) != parameterCount) {
+      return null;
+    }
+    return new MultiRowInsert(ms, sql.substring(0, valuesStart), sql.substring(valuesStart));
+  }
+
+  /**
+   * Returns the index of the opening parenthesis of the {@code VALUES} group if the statement ends with it, or -1.
+   */
+  private static int findValuesGroup(String sql) {
+    int keyword = -1;
+    int groupStart = -1;
+    int depth = 0;
+    char quote = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      final char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        if (depth == 0 && keyword >= 0 && groupStart < 0 && sql.substring(keyword + 6, i).trim().isEmpty()) {
+          groupStart = i;
+        }
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0 && groupStart >= 0) {
+          return sql.substring(i + 1).trim().isEmpty() ? groupStart : -1;
+        }
+      } else if (depth == 0 && isKeyword(sql, i, "values")) {
+        if (keyword >= 0) {
+          return -1;
+        }
+        keyword = i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isKeyword(String sql, int index, String keyword) {
+    return sql.regionMatches(true, index, keyword, 0, keyword.length())
+        && (index == 0 || !Character.isJavaIdentifierPart(sql.charAt(index - 1)))
+        && (index + keyword.length() == sql.length() || !Character.isJavaIdentifierPart(sql.charAt(index + keyword.length())));
+  }
+
+  private static int countPlaceholders(String sql, int from) {
+    int count = 0;
+    char quote = 0;
+    for (int i = from; i < sql.length(); i++) {
+      final char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '?') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  MappedStatement getMappedStatement() {
+    return mappedStatement;
+  }
+
+  void addRow(BoundSql boundSql) {
+    rows.add(boundSql);
+  }
+
+  int size() {
+    return rows.size();
+  }
+
+  /**
+   * Returns the number of rows sent by each statement.
+   */
+  int getRowsPerStatement() {
+    final int parameterCount = rows.get(0).getParameterMappings().size();
+    return Math.max(1, mappedStatement.getConfiguration().getBatchInsertMaxParameters() / parameterCount);
+  }
+
+  String getSql(int rowCount) {
+    final StringBuilder sql = new StringBuilder(head.length() + (values.length() + 2) * rowCount);
+    sql.append(head).append(values);
+    for (int i = 1; i < rowCount; i++) {
+      sql.append(", ").append(values);
+    }
+    return sql.toString();
+  }
+
+  /**
+   * Returns the statement sending the rows {@code from} (inclusive) to {@code to} (exclusive). Its parameter object is
+   * the list of the parameter objects of the rows. The value of each placeholder is bound as an additional parameter
+   * named after its row, so the configured parameter handler reads it as it would for the single-row statement.
+   */
+  BoundSql getBoundSql(List<Object> parameterObjects, int from, int to) {
+    final Configuration configuration = mappedStatement.getConfiguration();
+    final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    final List<ParameterMapping> parameterMappings = new ArrayList<>();
+    final Map<String, Object> additionalParameters = new HashMap<>();
+    for (int row = from; row < to; row++) {
+      final BoundSql boundSql = rows.get(row);
+      final Object parameterObject = parameterObjects.get(row);
+      final String rowName = "_row" + (row - from);
+      additionalParameters.put(rowName, parameterObject);
+      for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+        final String propertyName = parameterMapping.getProperty();
+        final String property;
+        if (boundSql.hasAdditionalParameter(propertyName)) {
+          final String name = new PropertyTokenizer(propertyName).getName();
+          additionalParameters.put(rowName + "_" + name, boundSql.getAdditionalParameter(name));
+          property = rowName + "_" + propertyName;
+        } else if (parameterObject == null || typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+          property = rowName;
+        } else {
+          property = rowName + "." + propertyName;
+        }
+        parameterMappings.add(new ParameterMapping.Builder(configuration, property, parameterMapping.getTypeHandler())
+            .javaType(parameterMapping.getJavaType())
+            .jdbcType(parameterMapping.getJdbcType())
+            .jdbcTypeName(parameterMapping.getJdbcTypeName())
+            .numericScale(parameterMapping.getNumericScale())
+            .build());
+      }
+    }
+    final BoundSql boundSql = new BoundSql(configuration, getSql(to - from), parameterMappings,
+        new ArrayList<>(parameterObjects.subList(from, to)));
+    additionalParameters.forEach(boundSql::setAdditionalParameter);
+    return boundSql;
+  }
+
+}
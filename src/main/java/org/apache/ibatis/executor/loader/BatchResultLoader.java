@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Loader of one parent of a {@link ResultLoaderBatch}. On its own (e.g. after deserialization) it runs the nested
+ * select with a single-element parameter list.
+ *
+ * @since 3.5.2
+ */
+class BatchResultLoader extends ResultLoader {
+
+  private final ResultLoaderBatch batch;
+  private final Object parameter;
+  private final Object key;
+
+  BatchResultLoader(Configuration config, Executor executor, MappedStatement mappedStatement, Object parameter,
+      Class<?> targetType, ResultLoaderBatch batch, Object key) {
+    super(config, executor, mappedStatement, ResultLoaderBatch.wrapParameters(Collections.singletonList(parameter)),
+        targetType, null, null);
+    this.batch = batch;
+    this.parameter = parameter;
+    this.key = key;
+  }
+
+  @Override
+  public Object loadResult() throws SQLException {
+    List<Object> list = batch.load(this);
+    resultObject = resultExtractor.extractObjectFromList(list, targetType);
+    return resultObject;
+  }
+
+  Object getParameter() {
+    return parameter;
+  }
+
+  Object getKey() {
+    return key;
+  }
+
+}
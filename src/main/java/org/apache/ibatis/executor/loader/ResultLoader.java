@@ -73,11 +73,25 @@ public class ResultLoader {
   }
 
   private <E> List<E> selectList() throws SQLException {
+    return selectList(parameterObject, cacheKey, boundSql);
+  }
+
+  /**
+   * Runs the nested statement with the given parameter on the executor of this loader, or on a new one if the loader
+   * is used from another thread or after its session was closed. The executor builds the SQL and the cache key when
+   * no bound SQL is given.
+   *
+   * @since 3.5.2
+   */
+  protected <E> List<E> selectList(Object parameterObject, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
     Executor localExecutor = executor;
     if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
       localExecutor = newExecutor();
     }
     try {
+      if (boundSql == null) {
+        return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      }
       return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
     } finally {
       if (localExecutor != executor) {
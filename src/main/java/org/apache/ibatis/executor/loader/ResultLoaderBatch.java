@@ -0,0 +1,255 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Resolves the nested select of a result mapping for many parents with a single query.
+ * <p>
+ * Every parent gets a loader from {@link #newLoader(Executor, Object, Class)}. When one of them is loaded, up to
+ * {@code batchSize} distinct pending parameters are resolved together: the nested statement runs once with the list of
+ * them (bound as {@code list} and {@code collection}) and each loaded object is handed back to the loaders whose
+ * parameter matches its key. Parameters already resolved by a previous batch are not queried again. The key of a
+ * loaded object is read from the properties mapped to the {@code foreignColumn} of the result mapping, or to the id
+ * columns of the nested result map for an association without foreign column.
+ * <p>
+ * Nested selects issued while a batch is being loaded are not batched again (see {@link #isLoading()}): with a cyclic
+ * mapping they could re-enter a batch that is still running.
+ *
+ * @since 3.5.2
+ */
+public class ResultLoaderBatch {
+
+  private final Configuration configuration;
+  private final MappedStatement mappedStatement;
+  private final ResultMapping resultMapping;
+  private final int batchSize;
+
+  private static final ThreadLocal<Integer> loadingDepth = ThreadLocal.withInitial(() -> 0);
+
+  private final Lock lock = new ReentrantLock();
+  private final Set<BatchResultLoader> pending = new LinkedHashSet<>();
+  private final Map<Object, List<Object>> loaded = new HashMap<>();
+  private List<String> keyProperties;
+
+  public ResultLoaderBatch(Configuration configuration, MappedStatement mappedStatement, ResultMapping resultMapping) {
+    this.configuration = configuration;
+    this.mappedStatement = mappedStatement;
+    this.resultMapping = resultMapping;
+    this.batchSize = resultMapping.getBatchSize() > 0 ? resultMapping.getBatchSize() : configuration.getDefaultBatchFetchSize();
+  }
+
+  /**
+   * Registers a parent whose property will be loaded with the other pending parents of this batch.
+   *
+   * @param executor the executor of the session that read the parent
+   * @param parameterObject the parameter of the nested select for this parent
+   * @param targetType the type of the property
+   * @return the loader of the property
+   */
+  public ResultLoader newLoader(Executor executor, Object parameterObject, Class<?> targetType) {
+    final BatchResultLoader loader = new BatchResultLoader(configuration, executor, mappedStatement, parameterObject,
+        targetType, this, getParameterKey(parameterObject));
+    lock.lock();
+    try {
+      pending.add(loader);
+    } finally {
+      lock.unlock();
+    }
+    return loader;
+  }
+
+  List<Object> load(BatchResultLoader requester) throws SQLException {
+    lock.lock();
+    try {
+      pending.remove(requester);
+      if (!loaded.containsKey(requester.getKey())) {
+        final Map<Object, Object> parameters = new LinkedHashMap<>();
+        parameters.put(requester.getKey(), requester.getParameter());
+        for (Iterator<BatchResultLoader> it = pending.iterator(); it.hasNext() && parameters.size() < batchSize;) {
+          final BatchResultLoader loader = it.next();
+          if (!loaded.containsKey(loader.getKey())) {
+            parameters.putIfAbsent(loader.getKey(), loader.getParameter());
+          }
+          it.remove();
+        }
+        final List<Object> rows;
+        loadingDepth.set(loadingDepth.get() + 1);
+        try {
+          rows = requester.selectList(wrapParameters(new ArrayList<>(parameters.values())), null, null);
+        } finally {
+          loadingDepth.set(loadingDepth.get() - 1);
+        }
+        for (Object key : parameters.keySet()) {
+          loaded.put(key, new ArrayList<>());
+        }
+        for (Object row : rows) {
+          final List<Object> rowsOfKey = row != null ? loaded.get(getRowKey(row)) : null;
+          if (rowsOfKey != null) {
+            rowsOfKey.add(row);
+          }
+        }
+      }
+      return new ArrayList<>(loaded.get(requester.getKey()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Tells whether the current thread is running the nested select of a batch. The result set handler then resolves
+   * nested selects row by row, so that a key of the local cache that is still being loaded is deferred instead of
+   * queried again.
+   *
+   * @return true while a batch is loaded on the current thread
+   */
+  public static boolean isLoading() {
+    return loadingDepth.get() > 0;
+  }
+
+  /**
+   * Wraps the parameters of a batched nested select.
+   *
+   * @param parameters the parameters of the parents
+   * @return the parameter object of the nested select
+   */
+  public static Object wrapParameters(List<Object> parameters) {
+    final ParamMap<Object> parameterObject = new ParamMap<>();
+    parameterObject.put("collection", parameters);
+    parameterObject.put("list", parameters);
+    return parameterObject;
+  }
+
+  private Object getParameterKey(Object parameterObject) {
+    if (!resultMapping.isCompositeResult()) {
+      return normalize(parameterObject);
+    }
+    final MetaObject metaObject = configuration.newMetaObject(parameterObject);
+    final Object[] key = new Object[resultMapping.getComposites().size()];
+    for (int i = 0; i < key.length; i++) {
+      key[i] = normalize(metaObject.getValue(resultMapping.getComposites().get(i).getProperty()));
+    }
+    return Arrays.asList(key);
+  }
+
+  private Object getRowKey(Object row) {
+    final List<String> properties = getKeyProperties();
+    final Object[] key = new Object[properties.size()];
+    for (int i = 0; i < key.length; i++) {
+      key[i] = normalize(row instanceof Map ? getMapValue((Map<?, ?>) row, properties.get(i))
+          : configuration.newMetaObject(row).getValue(properties.get(i)));
+    }
+    return resultMapping.isCompositeResult() ? Arrays.asList(key) : key[0];
+  }
+
+  private static Object getMapValue(Map<?, ?> row, String column) {
+    for (Map.Entry<?, ?> entry : row.entrySet()) {
+      if (column.equalsIgnoreCase(String.valueOf(entry.getKey()))) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  private List<String> getKeyProperties() {
+    if (keyProperties == null) {
+      final ResultMap resultMap = mappedStatement.getResultMaps().get(0);
+      final List<String> columns = new ArrayList<>();
+      if (resultMapping.getForeignColumn() != null) {
+        for (String column : resultMapping.getForeignColumn().split(",")) {
+          columns.add(column.trim());
+        }
+      } else if (!Collection.class.isAssignableFrom(resultMapping.getJavaType())) {
+        for (ResultMapping idMapping : resultMap.getIdResultMappings()) {
+          if (idMapping.getFlags().contains(ResultFlag.ID)) {
+            columns.add(idMapping.getColumn());
+          }
+        }
+      }
+      final int keySize = resultMapping.isCompositeResult() ? resultMapping.getComposites().size() : 1;
+      if (columns.size() != keySize) {
+        throw new ExecutorException("Cannot batch the nested select '" + mappedStatement.getId() + "' of property '"
+            + resultMapping.getProperty() + "'. Specify a foreignColumn for each column passed to the nested select.");
+      }
+      final List<String> properties = new ArrayList<>();
+      for (String column : columns) {
+        properties.add(findKeyProperty(resultMap, column));
+      }
+      keyProperties = properties;
+    }
+    return keyProperties;
+  }
+
+  private String findKeyProperty(ResultMap resultMap, String column) {
+    if (Map.class.isAssignableFrom(resultMap.getType())) {
+      return column;
+    }
+    final MetaClass metaClass = MetaClass.forClass(resultMap.getType(), configuration.getReflectorFactory());
+    for (ResultMapping mapping : resultMap.getResultMappings()) {
+      if (column.equalsIgnoreCase(mapping.getColumn()) && mapping.getProperty() != null
+          && mapping.getNestedQueryId() == null && metaClass.hasGetter(mapping.getProperty())) {
+        return mapping.getProperty();
+      }
+    }
+    final String property = metaClass.findProperty(column, configuration.isMapUnderscoreToCamelCase());
+    if (property == null || !metaClass.hasGetter(property)) {
+      throw new ExecutorException("Cannot batch the nested select '" + mappedStatement.getId() + "' of property '"
+          + resultMapping.getProperty() + "'. No readable property of " + resultMap.getType().getName()
+          + " is mapped to column '" + column + "'.");
+    }
+    return property;
+  }
+
+  private static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+      try {
+        return new BigDecimal(value.toString()).longValueExact();
+      } catch (ArithmeticException e) {
+        return value;
+      }
+    }
+    return value;
+  }
+
+}
@@ -0,0 +1,188 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.MethodHandle;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Row mapper compiled for one simple result map, one column prefix, one result type and one result set layout (see
+ * {@link ResultSetWrapper#getColumnSignature()}). It is immutable and shared through
+ * {@link org.apache.ibatis.session.Configuration#getAutoMappingPlanCache()}.
+ * <p>
+ * Every column/property pair and every column index is resolved once when the mapper is built. Mapping a row is then
+ * a loop of direct {@link TypeHandler#getResult(ResultSet, int)} calls followed by setter method handle calls, without
+ * going through {@code MetaObject} or {@code PropertyTokenizer}. Setters that cannot be reached through a method
+ * handle fall back to their {@link Invoker}.
+ *
+ * @since 3.5.2
+ */
+final class CompiledRowMapper {
+
+  private final Class<?> type;
+  private final String[] columns;
+  private final String[] properties;
+  private final TypeHandler<?>[] typeHandlers;
+  private final MethodHandle[] setters;
+  private final Invoker[] invokers;
+  private final boolean[] setOnNull;
+  private final int[] columnIndexes;
+
+  private CompiledRowMapper(Builder builder) {
+    int size = builder.columns.size();
+    this.type = builder.reflector.getType();
+    this.columns = builder.columns.toArray(new String[size]);
+    this.columnIndexes = new int[size];
+    this.properties = builder.properties.toArray(new String[size]);
+    this.typeHandlers = builder.typeHandlers.toArray(new TypeHandler<?>[size]);
+    this.setters = builder.setters.toArray(new MethodHandle[size]);
+    this.invokers = builder.invokers.toArray(new Invoker[size]);
+    this.setOnNull = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      columnIndexes[i] = builder.columnIndexes.get(i);
+      setOnNull[i] = builder.setOnNull.get(i);
+    }
+  }
+
+  Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * Maps the current row of the result set onto the given object.
+   *
+   * @param rsw the result set, positioned on the row
+   * @param rowValue the object to populate, an instance of {@link #getType()}
+   * @return true if at least one column was not null
+   * @throws SQLException if a column cannot be read
+   */
+  boolean map(ResultSetWrapper rsw, Object rowValue) throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
+    boolean foundValues = false;
+    for (int i = 0; i < columns.length; i++) {
+      final Object value = columnIndexes[i] > 0 ? typeHandlers[i].getResult(rs, columnIndexes[i]) : typeHandlers[i].getResult(rs, columns[i]);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || setOnNull[i]) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        set(i, rowValue, value);
+      }
+    }
+    return foundValues;
+  }
+
+  /**
+   * Reads the mapped columns of the current row, for {@link #apply(Object[], Object)} to be called later, possibly on
+   * another thread.
+   *
+   * @param rs the result set positioned on the row
+   * @return the column values, in mapping order
+   * @throws SQLException if a column cannot be read
+   */
+  Object[] read(ResultSet rs) throws SQLException {
+    final Object[] values = new Object[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      values[i] = columnIndexes[i] > 0 ? typeHandlers[i].getResult(rs, columnIndexes[i]) : typeHandlers[i].getResult(rs, columns[i]);
+    }
+    return values;
+  }
+
+  /**
+   * Sets values returned by {@link #read(ResultSet)} onto the given object.
+   *
+   * @param values the column values
+   * @param rowValue the object to populate, an instance of {@link #getType()}
+   * @return true if at least one value was not null
+   */
+  boolean apply(Object[] values, Object rowValue) {
+    boolean foundValues = false;
+    for (int i = 0; i < values.length; i++) {
+      final Object value = values[i];
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || setOnNull[i]) {
+        set(i, rowValue, value);
+      }
+    }
+    return foundValues;
+  }
+
+  private void set(int index, Object rowValue, Object value) {
+    try {
+      MethodHandle setter = setters[index];
+      if (setter != null) {
+        setter.invokeExact(rowValue, value);
+      } else {
+        try {
+          invokers[index].invoke(rowValue, new Object[] {value});
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[index] + "' of '" + rowValue.getClass()
+          + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  static final class Builder {
+
+    private final ResultSetWrapper rsw;
+    private final Reflector reflector;
+    private final boolean callSettersOnNulls;
+    private final List<String> columns = new ArrayList<>();
+    private final List<Integer> columnIndexes = new ArrayList<>();
+    private final List<String> properties = new ArrayList<>();
+    private final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
+    private final List<MethodHandle> setters = new ArrayList<>();
+    private final List<Invoker> invokers = new ArrayList<>();
+    private final List<Boolean> setOnNull = new ArrayList<>();
+
+    Builder(ResultSetWrapper rsw, Reflector reflector, boolean callSettersOnNulls) {
+      this.rsw = rsw;
+      this.reflector = reflector;
+      this.callSettersOnNulls = callSettersOnNulls;
+    }
+
+    Builder add(String column, String property, TypeHandler<?> typeHandler) {
+      columns.add(column);
+      columnIndexes.add(rsw.getColumnIndex(column));
+      properties.add(property);
+      typeHandlers.add(typeHandler);
+      MethodHandle setter = reflector.getSetterHandle(property);
+      setters.add(setter);
+      invokers.add(setter == null ? reflector.getSetInvoker(property) : null);
+      setOnNull.add(callSettersOnNulls && !reflector.getSetterType(property).isPrimitive());
+      return this;
+    }
+
+    CompiledRowMapper build() {
+      return new CompiledRowMapper(this);
+    }
+  }
+
+}
@@ -21,8 +21,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -30,6 +33,7 @@ import java.util.Set;
 
 import org.apache.ibatis.annotations.AutomapConstructor;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
@@ -37,6 +41,7 @@ import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.executor.loader.ResultLoaderBatch;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
@@ -51,6 +56,7 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
@@ -95,6 +101,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+  // Compiled row mappers by result set layout (column signature), then by result map and column prefix.
+  // A null value marks a result map that cannot be compiled
+  private final Map<String, Map<String, CompiledRowMapper>> compiledRowMappers = new HashMap<>();
+  // Batched nested selects by result mapping instance (ResultMapping.equals only compares properties)
+  private final Map<ResultMapping, ResultLoaderBatch> resultLoaderBatches = new IdentityHashMap<>();
+  // Eager batched nested selects, resolved once all result sets have been read into lists
+  private final List<PendingBatchLoad> pendingBatchLoads = new ArrayList<>();
+  private boolean deferringBatchLoads;
+
+  // marks a result map that cannot be compiled in the configuration-wide plan cache
+  private static final Object UNCOMPILABLE = new Object();
+
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
@@ -103,6 +121,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
+  private static class PendingBatchLoad {
+    public MetaObject metaObject;
+    public String property;
+    public ResultLoader resultLoader;
+  }
+
   private static class UnMappedColumnAutoMapping {
     private final String column;
     private final String property;
@@ -117,6 +141,24 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  // the automatic mappings of a result set layout, and the columns to report to autoMappingUnknownColumnBehavior
+  private static class AutoMappingPlan {
+    private final List<UnMappedColumnAutoMapping> mappings = new ArrayList<>();
+    private final List<UnknownColumn> unknownColumns = new ArrayList<>();
+  }
+
+  private static class UnknownColumn {
+    private final String column;
+    private final String property;
+    private final Class<?> propertyType;
+
+    public UnknownColumn(String column, String property, Class<?> propertyType) {
+      this.column = column;
+      this.property = property;
+      this.propertyType = propertyType;
+    }
+  }
+
   public DefaultResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler, ResultHandler<?> resultHandler, BoundSql boundSql,
                                  RowBounds rowBounds) {
     this.executor = executor;
@@ -189,6 +231,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
 
     final List<Object> multipleResults = new ArrayList<>();
+    // rows handed to a custom result handler must be complete, so only batch eager loads when collecting lists
+    deferringBatchLoads = resultHandler == null;
 
     int resultSetCount = 0;
     ResultSetWrapper rsw = getFirstResultSet(stmt);
@@ -219,9 +263,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    loadPendingBatches();
     return collapseSingleResultList(multipleResults);
   }
 
+  private void loadPendingBatches() throws SQLException {
+    for (PendingBatchLoad pendingBatchLoad : pendingBatchLoads) {
+      pendingBatchLoad.metaObject.setValue(pendingBatchLoad.property, pendingBatchLoad.resultLoader.loadResult());
+    }
+    pendingBatchLoads.clear();
+  }
+
   @Override
   public <E> Cursor<E> handleCursorResultSets(Statement stmt) throws SQLException {
     ErrorContext.instance().activity("handling cursor results").object(mappedStatement.getId());
@@ -344,7 +396,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   protected void checkResultHandler() {
-    if (resultHandler != null && configuration.isSafeResultHandlerEnabled() && !mappedStatement.isResultOrdered()) {
+    if (resultHandler != null && configuration.isSafeResultHandlerEnabled() && !isStreamingNestedResults(resultHandler)) {
       throw new ExecutorException("Mapped Statements with nested result mappings cannot be safely used with a custom ResultHandler. "
           + "Use safeResultHandlerEnabled=false setting to bypass this check "
           + "or ensure your statement returns ordered data and set resultOrdered=true on it.");
@@ -360,9 +412,42 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
       Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+      if (rowValue != null && shouldProcessMoreRows(resultContext, rowBounds)) {
+        final RowMappingPipeline pipeline = getRowMappingPipeline(rsw, resultMap, rowValue, parentMapping);
+        if (pipeline != null) {
+          pipeline.run(resultSet, rowBounds.getLimit() - resultContext.getResultCount(), value -> {
+            callResultHandler(resultHandler, resultContext, value);
+            return shouldProcessMoreRows(resultContext, rowBounds);
+          });
+          break;
+        }
+      }
     }
   }
 
+  /**
+   * Returns a pipeline mapping the remaining rows on several threads, or null when parallel row mapping is disabled or
+   * the result map needs anything beyond a default constructor and plain setters.
+   */
+  private RowMappingPipeline getRowMappingPipeline(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, ResultMapping parentMapping) throws SQLException {
+    if (!configuration.isParallelRowMappingEnabled()
+        || parentMapping != null
+        || resultMap.getDiscriminator() != null
+        || !resultMap.getConstructorResultMappings().isEmpty()
+        || rowValue.getClass() != resultMap.getType()
+        || useConstructorMappings
+        || hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      return null;
+    }
+    final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap, rowValue, null);
+    if (rowMapper == null) {
+      return null;
+    }
+    return new RowMappingPipeline(rowMapper, objectFactory, resultMap.getType(),
+        configuration.isReturnInstanceForEmptyRow(), configuration.getParallelRowMappingBatchSize(),
+        configuration.getParallelRowMappingExecutor());
+  }
+
   private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
@@ -403,18 +488,106 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
-      final MetaObject metaObject = configuration.newMetaObject(rowValue);
+      final CompiledRowMapper rowMapper = configuration.isCompiledRowMappingEnabled()
+          ? getCompiledRowMapper(rsw, resultMap, rowValue, columnPrefix) : null;
       boolean foundValues = this.useConstructorMappings;
-      if (shouldApplyAutomaticMappings(resultMap, false)) {
-        foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+      if (rowMapper != null) {
+        foundValues = rowMapper.map(rsw, rowValue) || foundValues;
+      } else {
+        final MetaObject metaObject = configuration.newMetaObject(rowValue);
+        if (shouldApplyAutomaticMappings(resultMap, false)) {
+          foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, columnPrefix) || foundValues;
+        }
+        foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
       }
-      foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, columnPrefix) || foundValues;
       foundValues = lazyLoader.size() > 0 || foundValues;
       rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
     }
     return rowValue;
   }
 
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix) throws SQLException {
+    // the column indexes of a compiled mapper only hold for the layout it was built for
+    final Map<String, CompiledRowMapper> layoutRowMappers = compiledRowMappers.computeIfAbsent(rsw.getColumnSignature(), k -> new HashMap<>());
+    final String mapKey = resultMap.getId() + ":" + columnPrefix;
+    CompiledRowMapper rowMapper = layoutRowMappers.get(mapKey);
+    if (rowMapper == null && layoutRowMappers.containsKey(mapKey)) {
+      return null;
+    }
+    if (rowMapper == null || rowMapper.getType() != rowValue.getClass()) {
+      if (shouldApplyAutomaticMappings(resultMap, false)) {
+        // a shared compiled plan skips the automatic mappings, which report the unknown columns of this execution
+        createAutomaticMappings(rsw, resultMap, configuration.newMetaObject(rowValue), columnPrefix);
+      }
+      final Cache planCache = configuration.getAutoMappingPlanCache();
+      final String planKey = getMappingPlanKey("compiled", rsw, resultMap, columnPrefix, rowValue.getClass());
+      final Object plan = planCache.getObject(planKey);
+      if (plan == null) {
+        rowMapper = compileRowMapper(rsw, resultMap, rowValue, columnPrefix);
+        planCache.putObject(planKey, rowMapper != null ? rowMapper : UNCOMPILABLE);
+      } else {
+        rowMapper = plan != UNCOMPILABLE ? (CompiledRowMapper) plan : null;
+      }
+      layoutRowMappers.put(mapKey, rowMapper);
+    }
+    return rowMapper;
+  }
+
+  private String getMappingPlanKey(String kind, ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, Class<?> type) {
+    return kind + "\n" + resultMap.getId() + ":" + columnPrefix + ":" + type.getName() + "\n" + rsw.getColumnSignature();
+  }
+
+  /**
+   * Compiles the automatic and property mappings of a simple result map, or returns null when a mapping needs the
+   * generic path (nested queries, multiple result sets, nested property paths, maps or custom object wrappers).
+   */
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix) throws SQLException {
+    if (rowValue instanceof Map || rowValue instanceof Collection || configuration.getObjectWrapperFactory().hasWrapperFor(rowValue)) {
+      return null;
+    }
+    final Reflector reflector = reflectorFactory.findForClass(rowValue.getClass());
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    final List<ResultMapping> propertyMappings = new ArrayList<>();
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.getNestedQueryId() != null || propertyMapping.getResultSet() != null
+          || propertyMapping.isCompositeResult()) {
+        return null;
+      }
+      final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      final String property = propertyMapping.getProperty();
+      if (propertyMapping.getNestedResultMapId() != null || property == null || column == null
+          || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      if (!isSimpleProperty(reflector, property)) {
+        return null;
+      }
+      propertyMappings.add(propertyMapping);
+    }
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(rsw, reflector, configuration.isCallSettersOnNulls());
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      final MetaObject metaObject = configuration.newMetaObject(rowValue);
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix)) {
+        if (!isSimpleProperty(reflector, mapping.property)) {
+          return null;
+        }
+        builder.add(mapping.column, mapping.property, mapping.typeHandler);
+      }
+    }
+    for (ResultMapping propertyMapping : propertyMappings) {
+      builder.add(prependPrefix(propertyMapping.getColumn(), columnPrefix), propertyMapping.getProperty(), propertyMapping.getTypeHandler());
+    }
+    return builder.build();
+  }
+
+  private boolean isSimpleProperty(Reflector reflector, String property) {
+    return property.indexOf('.') < 0 && property.indexOf('[') < 0 && reflector.hasSetter(property);
+  }
+
   private boolean shouldApplyAutomaticMappings(ResultMap resultMap, boolean isNested) {
     if (resultMap.getAutoMapping() != null) {
       return resultMap.getAutoMapping();
@@ -445,7 +618,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (propertyMapping.isCompositeResult()
           || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw, metaObject, propertyMapping, lazyLoader, columnPrefix);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -466,8 +639,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
+  private Object getPropertyMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -476,15 +650,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      return typeHandler.getResult(rs, column);
+      return getColumnValue(rsw, typeHandler, column);
     }
   }
 
+  private Object getColumnValue(ResultSetWrapper rsw, TypeHandler<?> typeHandler, String column) throws SQLException {
+    final int columnIndex = rsw.getColumnIndex(column);
+    return columnIndex > 0 ? typeHandler.getResult(rsw.getResultSet(), columnIndex) : typeHandler.getResult(rsw.getResultSet(), column);
+  }
+
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
     final String mapKey = resultMap.getId() + ":" + columnPrefix;
     List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
     if (autoMapping == null) {
-      autoMapping = new ArrayList<>();
+      autoMapping = getSharedAutomaticMappings(rsw, resultMap, metaObject, columnPrefix);
+      autoMappingsCache.put(mapKey, autoMapping);
+    }
+    return autoMapping;
+  }
+
+  private List<UnMappedColumnAutoMapping> getSharedAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
+    final Cache planCache = configuration.getAutoMappingPlanCache();
+    final String planKey = getMappingPlanKey("auto", rsw, resultMap, columnPrefix, metaObject.getOriginalObject().getClass());
+    AutoMappingPlan plan = (AutoMappingPlan) planCache.getObject(planKey);
+    if (plan == null) {
+      plan = new AutoMappingPlan();
       final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
       for (String columnName : unmappedColumnNames) {
         String propertyName = columnName;
@@ -505,19 +695,22 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           final Class<?> propertyType = metaObject.getSetterType(property);
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            plan.mappings.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
           } else {
-            configuration.getAutoMappingUnknownColumnBehavior()
-                .doAction(mappedStatement, columnName, property, propertyType);
+            plan.unknownColumns.add(new UnknownColumn(columnName, property, propertyType));
           }
         } else {
-          configuration.getAutoMappingUnknownColumnBehavior()
-              .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
+          plan.unknownColumns.add(new UnknownColumn(columnName, (property != null) ? property : propertyName, null));
         }
       }
-      autoMappingsCache.put(mapKey, autoMapping);
+      planCache.putObject(planKey, plan);
     }
-    return autoMapping;
+    // reported by every execution, not only by the one that built the shared plan
+    for (UnknownColumn unknownColumn : plan.unknownColumns) {
+      configuration.getAutoMappingUnknownColumnBehavior()
+          .doAction(mappedStatement, unknownColumn.column, unknownColumn.property, unknownColumn.propertyType);
+    }
+    return plan.mappings;
   }
 
   private boolean applyAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
@@ -525,7 +718,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = getColumnValue(rsw, mapping.typeHandler, mapping.column);
         if (value != null) {
           foundValues = true;
         }
@@ -642,7 +835,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           value = getRowValue(rsw, resultMap, getColumnPrefix(columnPrefix, constructorMapping));
         } else {
           final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-          value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+          value = getColumnValue(rsw, typeHandler, prependPrefix(column, columnPrefix));
         }
       } catch (ResultMapException | SQLException e) {
         throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -675,7 +868,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       Class<?> parameterType = constructor.getParameterTypes()[i];
       String columnName = rsw.getColumnNames().get(i);
       TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-      Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+      Object value = typeHandler.getResult(rsw.getResultSet(), i + 1);
       constructorArgTypes.add(parameterType);
       constructorArgs.add(value);
       foundValues = value != null || foundValues;
@@ -720,7 +913,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       columnName = rsw.getColumnNames().get(0);
     }
     final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    return getColumnValue(rsw, typeHandler, columnName);
   }
 
   //
@@ -748,10 +941,35 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final String nestedQueryId = propertyMapping.getNestedQueryId();
     final String property = propertyMapping.getProperty();
     final MappedStatement nestedQuery = configuration.getMappedStatement(nestedQueryId);
-    final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
-    final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
+    Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
+    if (propertyMapping.getBatchSize() > 0 && nestedQueryParameterType != null && Collection.class.isAssignableFrom(nestedQueryParameterType)) {
+      // a batched nested select takes the list of the parent parameters
+      nestedQueryParameterType = null;
+    }
+    Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
     Object value = null;
-    if (nestedQueryParameterObject != null) {
+    if (nestedQueryParameterObject != null && propertyMapping.getBatchSize() > 0 && !ResultLoaderBatch.isLoading()) {
+      final ResultLoader resultLoader = getResultLoaderBatch(nestedQuery, propertyMapping)
+          .newLoader(executor, nestedQueryParameterObject, propertyMapping.getJavaType());
+      if (propertyMapping.isLazy()) {
+        lazyLoader.addLoader(property, metaResultObject, resultLoader);
+        value = DEFERRED;
+      } else if (deferringBatchLoads) {
+        final PendingBatchLoad pendingBatchLoad = new PendingBatchLoad();
+        pendingBatchLoad.metaObject = metaResultObject;
+        pendingBatchLoad.property = property;
+        pendingBatchLoad.resultLoader = resultLoader;
+        pendingBatchLoads.add(pendingBatchLoad);
+        value = DEFERRED;
+      } else {
+        value = resultLoader.loadResult();
+      }
+    } else if (nestedQueryParameterObject != null) {
+      if (propertyMapping.getBatchSize() > 0) {
+        // inside the nested select of a batch: go row by row, so that a cyclic mapping is deferred below instead of
+        // re-entering a batch that is still running
+        nestedQueryParameterObject = ResultLoaderBatch.wrapParameters(Collections.singletonList(nestedQueryParameterObject));
+      }
       final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
       final CacheKey key = executor.createCacheKey(nestedQuery, nestedQueryParameterObject, RowBounds.DEFAULT, nestedBoundSql);
       final Class<?> targetType = propertyMapping.getJavaType();
@@ -771,6 +989,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  private ResultLoaderBatch getResultLoaderBatch(MappedStatement nestedQuery, ResultMapping propertyMapping) {
+    return resultLoaderBatches.computeIfAbsent(propertyMapping, k -> new ResultLoaderBatch(configuration, nestedQuery, propertyMapping));
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -857,7 +1079,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // HANDLE NESTED RESULT MAPS
   //
 
+  /**
+   * Whether nested results are streamed: each aggregate is handed over as soon as the key of the next root row differs
+   * from its key, and the rows it was built from are evicted from {@link #nestedResultObjects}. This is what
+   * {@code resultOrdered=true} asks for, and what {@link Configuration#isNestedResultStreamingEnabled()} turns on for
+   * every statement whose results go to a {@link org.apache.ibatis.cursor.Cursor} or a custom {@link ResultHandler}.
+   */
+  private boolean isStreamingNestedResults(ResultHandler<?> resultHandler) {
+    return mappedStatement.isResultOrdered()
+        || (configuration.isNestedResultStreamingEnabled() && resultHandler != null && !(resultHandler instanceof DefaultResultHandler));
+  }
+
   private void handleRowValuesForNestedResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
+    final boolean streaming = isStreamingNestedResults(resultHandler);
     final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
@@ -867,7 +1101,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
-      if (mappedStatement.isResultOrdered()) {
+      if (streaming) {
         if (partialObject == null && rowValue != null) {
           nestedResultObjects.clear();
           storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
@@ -880,7 +1114,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+    if (rowValue != null && streaming && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
       previousRowValue = null;
     } else if (rowValue != null) {
@@ -1013,9 +1247,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+    final CacheKey cacheKey = new CacheKey(1 + 2 * (resultMappings.isEmpty() ? rsw.getColumnNames().size() : resultMappings.size()));
+    cacheKey.update(resultMap.getId());
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
         createRowKeyForMap(rsw, cacheKey);
@@ -1066,7 +1300,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
+          final Object value = getColumnValue(rsw, th, column);
           if (value != null || configuration.isReturnInstanceForEmptyRow()) {
             cacheKey.update(column);
             cacheKey.update(value);
@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+
+import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
@@ -42,16 +44,21 @@ public class ResultSetWrapper {
 
   private final ResultSet resultSet;
   private final TypeHandlerRegistry typeHandlerRegistry;
+  private final Cache mappingPlanCache;
   private final List<String> columnNames = new ArrayList<>();
   private final List<String> classNames = new ArrayList<>();
   private final List<JdbcType> jdbcTypes = new ArrayList<>();
+  private final Map<String, Integer> columnIndexMap = new HashMap<>();
+  private final Map<String, Integer> upperColumnIndexMap = new HashMap<>();
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private String columnSignature;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    this.mappingPlanCache = configuration.getAutoMappingPlanCache();
     this.resultSet = rs;
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
@@ -59,6 +66,11 @@ public class ResultSetWrapper {
       columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
+      final String columnName = columnNames.get(i - 1);
+      if (columnName != null) {
+        columnIndexMap.putIfAbsent(columnName, i);
+        upperColumnIndexMap.putIfAbsent(columnName.toUpperCase(Locale.ENGLISH), i);
+      }
     }
   }
 
@@ -87,6 +99,55 @@ public class ResultSetWrapper {
     return null;
   }
 
+  /**
+   * Resolves a column label to its index, so that values can be read with the index based getters instead of having
+   * the driver look the label up for every cell. An exact match wins, otherwise the first column whose label matches
+   * ignoring case is used, like {@link ResultSet#findColumn(String)}.
+   *
+   * @param columnName the column label (or name, when column labels are not used)
+   * @return the 1-based column index, or -1 if the result set has no such column
+   * @since 3.5.2
+   */
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
+    }
+    Integer index = columnIndexMap.get(columnName);
+    if (index == null) {
+      index = upperColumnIndexMap.get(columnName.toUpperCase(Locale.ENGLISH));
+    }
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Gets a string that identifies the layout of this result set: the label, JDBC type and Java class name of every
+   * column, in order. Two result sets with the same signature can share mapping plans.
+   *
+   * @return the column signature
+   * @since 3.5.2
+   */
+  public String getColumnSignature() {
+    if (columnSignature == null) {
+      final StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < columnNames.size(); i++) {
+        appendSignaturePart(sb, columnNames.get(i));
+        appendSignaturePart(sb, jdbcTypes.get(i) == null ? null : jdbcTypes.get(i).name());
+        appendSignaturePart(sb, classNames.get(i));
+      }
+      columnSignature = sb.toString();
+    }
+    return columnSignature;
+  }
+
+  private static void appendSignaturePart(StringBuilder sb, String part) {
+    // length prefixed, so that no label can fake a column boundary
+    if (part == null) {
+      sb.append("-;");
+    } else {
+      sb.append(part.length()).append(':').append(part).append(';');
+    }
+  }
+
   /**
    * Gets the type handler to use when reading the result set.
    * Tries to get from the TypeHandlerRegistry by searching for the property type.
@@ -142,6 +203,18 @@ public class ResultSetWrapper {
   }
 
   private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    final String planKey = "columns\n" + mapKey + "\n" + getColumnSignature();
+    ColumnPartition plan = (ColumnPartition) mappingPlanCache.getObject(planKey);
+    if (plan == null) {
+      plan = partitionColumnNames(resultMap, columnPrefix);
+      mappingPlanCache.putObject(planKey, plan);
+    }
+    mappedColumnNamesMap.put(mapKey, plan.mappedColumnNames);
+    unMappedColumnNamesMap.put(mapKey, plan.unmappedColumnNames);
+  }
+
+  private ColumnPartition partitionColumnNames(ResultMap resultMap, String columnPrefix) {
     List<String> mappedColumnNames = new ArrayList<>();
     List<String> unmappedColumnNames = new ArrayList<>();
     final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
@@ -154,8 +227,7 @@ public class ResultSetWrapper {
         unmappedColumnNames.add(columnName);
       }
     }
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    return new ColumnPartition(mappedColumnNames, unmappedColumnNames);
   }
 
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
@@ -191,4 +263,15 @@ public class ResultSetWrapper {
     return prefixed;
   }
 
+  // the mapped and unmapped columns of a result map, shared through the mapping plan cache
+  private static class ColumnPartition {
+    private final List<String> mappedColumnNames;
+    private final List<String> unmappedColumnNames;
+
+    ColumnPartition(List<String> mappedColumnNames, List<String> unmappedColumnNames) {
+      this.mappedColumnNames = Collections.unmodifiableList(mappedColumnNames);
+      this.unmappedColumnNames = Collections.unmodifiableList(unmappedColumnNames);
+    }
+  }
+
 }
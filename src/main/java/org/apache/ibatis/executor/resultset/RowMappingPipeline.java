@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+
+/**
+ * Maps the rows of a simple result map on several threads while keeping the row order.
+ * <p>
+ * The calling thread remains the only one touching the {@link ResultSet}: it reads the mapped columns of up to
+ * {@code batchSize} rows through the type handlers of a {@link CompiledRowMapper} and hands the batch to the
+ * configured executor, where the result objects are instantiated and populated. Type handler conversion cannot move to
+ * the workers: a result set is a cursor that is not thread safe, and its getters only read the current row, which the
+ * next call to {@link ResultSet#next()} replaces. A result that fits in a single batch is mapped on the calling
+ * thread, so small queries pay no hand-off. Completed batches are drained in submission order
+ * on the calling thread, so result handlers see the rows in order and are never called concurrently. At most
+ * {@code maxPendingBatches} batches are in flight, which bounds the memory used by the read-ahead.
+ *
+ * @since 3.5.2
+ */
+final class RowMappingPipeline {
+
+  private final CompiledRowMapper rowMapper;
+  private final ObjectFactory objectFactory;
+  private final Class<?> resultType;
+  private final boolean returnInstanceForEmptyRow;
+  private final int batchSize;
+  private final int maxPendingBatches;
+  private final Executor executor;
+
+  RowMappingPipeline(CompiledRowMapper rowMapper, ObjectFactory objectFactory, Class<?> resultType,
+      boolean returnInstanceForEmptyRow, int batchSize, Executor executor) {
+    this.rowMapper = rowMapper;
+    this.objectFactory = objectFactory;
+    this.resultType = resultType;
+    this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+    this.batchSize = Math.max(1, batchSize);
+    this.maxPendingBatches = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+    this.executor = executor;
+  }
+
+  /**
+   * Maps the remaining rows of the result set.
+   *
+   * @param rs the result set
+   * @param maxRows the maximum number of rows to read
+   * @param consumer receives the row values in order, on the calling thread
+   * @throws SQLException if the result set cannot be read
+   */
+  void run(ResultSet rs, int maxRows, RowConsumer consumer) throws SQLException {
+    final Deque<CompletableFuture<Object[]>> pending = new ArrayDeque<>();
+    int remaining = maxRows;
+    boolean more = true;
+    try {
+      while (more) {
+        final List<Object[]> batch = new ArrayList<>(Math.min(batchSize, remaining));
+        while (batch.size() < batchSize && remaining > 0 && !rs.isClosed() && rs.next()) {
+          batch.add(rowMapper.read(rs));
+          remaining--;
+        }
+        more = batch.size() == batchSize && remaining > 0;
+        if (!more && pending.isEmpty()) {
+          // nothing left to overlap with, so skip the hand-off
+          pending.add(CompletableFuture.completedFuture(materialize(batch)));
+        } else if (!batch.isEmpty()) {
+          pending.add(CompletableFuture.supplyAsync(() -> materialize(batch), executor));
+        }
+        while (!pending.isEmpty() && (!more || pending.size() >= maxPendingBatches)) {
+          for (Object rowValue : join(pending.poll())) {
+            if (!consumer.accept(rowValue)) {
+              return;
+            }
+          }
+        }
+      }
+    } finally {
+      for (CompletableFuture<Object[]> future : pending) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  private Object[] materialize(List<Object[]> batch) {
+    final Object[] rowValues = new Object[batch.size()];
+    for (int i = 0; i < rowValues.length; i++) {
+      final Object rowValue = objectFactory.create(resultType);
+      final boolean foundValues = rowMapper.apply(batch.get(i), rowValue);
+      rowValues[i] = foundValues || returnInstanceForEmptyRow ? rowValue : null;
+    }
+    return rowValues;
+  }
+
+  private static Object[] join(CompletableFuture<Object[]> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new ExecutorException("Error mapping rows. Cause: " + e.getCause(), e.getCause());
+    }
+  }
+
+  @FunctionalInterface
+  interface RowConsumer {
+    /**
+     * @param rowValue the mapped row (null for an empty row)
+     * @return false to stop reading rows
+     * @throws SQLException if storing the row fails
+     */
+    boolean accept(Object rowValue) throws SQLException;
+  }
+
+}
@@ -24,13 +24,18 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheWeigher;
+import org.apache.ibatis.cache.ConcurrentCache;
 import org.apache.ibatis.cache.decorators.BlockingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -44,6 +49,7 @@ public class CacheBuilder {
   private Integer size;
   private Long clearInterval;
   private boolean readWrite;
+  private Class<? extends CacheSerializer> serializer;
   private Properties properties;
   private boolean blocking;
 
@@ -79,6 +85,14 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
   public CacheBuilder blocking(boolean blocking) {
     this.blocking = blocking;
     return this;
@@ -91,15 +105,21 @@ public class CacheBuilder {
 
   public Cache build() {
     setDefaultImplementations();
+    // second-level caches are shared by all sessions, so the default base cache is the concurrent one
+    if (PerpetualCache.class.equals(implementation)) {
+      implementation = ConcurrentPerpetualCache.class;
+    }
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
     // issue #352, do not apply decorators to custom caches
-    if (PerpetualCache.class.equals(cache.getClass())) {
+    if (ConcurrentPerpetualCache.class.equals(cache.getClass())) {
+      boolean concurrent = cache instanceof ConcurrentCache;
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        concurrent &= cache instanceof ConcurrentCache;
       }
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, concurrent);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       cache = new LoggingCache(cache);
     }
@@ -115,7 +135,7 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean concurrent) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
@@ -126,10 +146,12 @@ public class CacheBuilder {
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        cache = serializer == null ? new SerializedCache(cache) : new SerializedCache(cache, newSerializerInstance(serializer));
       }
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      if (!concurrent) {
+        cache = new SynchronizedCache(cache);
+      }
       if (blocking) {
         cache = new BlockingCache(cache);
       }
@@ -170,6 +192,8 @@ public class CacheBuilder {
           } else if (double.class == type
               || Double.class == type) {
             metaCache.setValue(name, Double.valueOf(value));
+          } else if (CacheWeigher.class == type || CacheSerializer.class == type) {
+            metaCache.setValue(name, newPropertyInstance(name, value, type));
           } else {
             throw new CacheException("Unsupported property type for cache: '" + name + "' of type " + type);
           }
@@ -186,6 +210,22 @@ public class CacheBuilder {
     }
   }
 
+  private CacheSerializer newSerializerInstance(Class<? extends CacheSerializer> serializerClass) {
+    try {
+      return serializerClass.getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer (" + serializerClass + "). Cause: " + e, e);
+    }
+  }
+
+  private Object newPropertyInstance(String name, String className, Class<?> type) {
+    try {
+      return type.cast(Resources.classForName(className).getDeclaredConstructor().newInstance());
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache property '" + name + "' (" + className + "). Cause: " + e, e);
+    }
+  }
+
   private Cache newBaseCacheInstance(Class<? extends Cache> cacheClass, String id) {
     Constructor<? extends Cache> cacheConstructor = getBaseCacheConstructor(cacheClass);
     try {
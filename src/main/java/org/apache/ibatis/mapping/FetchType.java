@@ -19,5 +19,11 @@ package org.apache.ibatis.mapping;
  * @author Eduardo Macarron
  */
 public enum FetchType {
-  LAZY, EAGER, DEFAULT
+  LAZY, EAGER, DEFAULT,
+  /**
+   * Loads lazily, resolving the nested select of many parents with a single query.
+   *
+   * @since 3.5.2
+   */
+  BATCH
 }
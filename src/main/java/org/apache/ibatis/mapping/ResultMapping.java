@@ -47,6 +47,7 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private int batchSize;
 
   ResultMapping() {
   }
@@ -134,6 +135,14 @@ public class ResultMapping {
       return this;
     }
 
+    /**
+     * @since 3.5.2
+     */
+    public Builder batchSize(int batchSize) {
+      resultMapping.batchSize = batchSize;
+      return this;
+    }
+
     public ResultMapping build() {
       // lock down collections
       resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -169,6 +178,9 @@ public class ResultMapping {
           throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
         }
       }
+      if (resultMapping.batchSize > 0 && resultMapping.nestedQueryId == null) {
+        throw new IllegalStateException("Batch fetching requires a nested select in property " + resultMapping.property);
+      }
     }
 
     private void resolveTypeHandler() {
@@ -253,6 +265,23 @@ public class ResultMapping {
     this.lazy = lazy;
   }
 
+  /**
+   * Returns the maximum number of parents whose nested select is resolved by a single query, or 0 when the nested select
+   * runs once per parent.
+   *
+   * @since 3.5.2
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -300,6 +329,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", batchSize=").append(batchSize);
     sb.append('}');
     return sb.toString();
   }
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.reflection;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
@@ -31,6 +33,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
@@ -50,6 +53,8 @@ import org.apache.ibatis.reflection.property.PropertyNamer;
  */
 public class Reflector {
 
+  private static final MethodType SETTER_HANDLE_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
   /**
    * 类对象
    */
@@ -85,6 +90,11 @@ public class Reflector {
    */
   private final Map<String, Class<?>> getTypes = new HashMap<>();
 
+  /**
+   * setter method handles already adapted to {@code (Object, Object)void}
+   */
+  private final Map<String, MethodHandle> setterHandles = new ConcurrentHashMap<>();
+
   /**
    * 默认的构造器 就是空构造器，不存在则此属性为null
    */
@@ -584,6 +594,35 @@ public class Reflector {
     return method;
   }
 
+  /**
+   * Gets a method handle of type {@code (Object, Object)void} that writes the property without going through
+   * {@link Invoker}.
+   *
+   * @param propertyName the name of the property
+   * @return the handle, or null if the setter cannot be reached through a method handle
+   * @since 3.5.2
+   */
+  public MethodHandle getSetterHandle(String propertyName) {
+    MethodHandle handle = setterHandles.get(propertyName);
+    if (handle == null) {
+      handle = adaptSetterHandle(getSetInvoker(propertyName));
+      if (handle != null) {
+        setterHandles.put(propertyName, handle);
+      }
+    }
+    return handle;
+  }
+
+  private MethodHandle adaptSetterHandle(Invoker invoker) {
+    MethodHandle handle = null;
+    if (invoker instanceof MethodInvoker) {
+      handle = ((MethodInvoker) invoker).getHandle();
+    } else if (invoker instanceof SetFieldInvoker) {
+      handle = ((SetFieldInvoker) invoker).getHandle();
+    }
+    return handle == null ? null : handle.asType(SETTER_HANDLE_TYPE);
+  }
+
   public Invoker getGetInvoker(String propertyName) {
     Invoker method = getMethods.get(propertyName);
     if (method == null) {
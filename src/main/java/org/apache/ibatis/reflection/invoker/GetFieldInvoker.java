@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2019 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.reflection.invoker;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 
 import org.apache.ibatis.reflection.Reflector;
@@ -24,6 +25,7 @@ import org.apache.ibatis.reflection.Reflector;
  */
 public class GetFieldInvoker implements Invoker {
   private final Field field;
+  private MethodHandle handle;
 
   public GetFieldInvoker(Field field) {
     this.field = field;
@@ -31,6 +33,14 @@ public class GetFieldInvoker implements Invoker {
 
   @Override
   public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+    final MethodHandle mh = getHandle();
+    if (mh != null && field.getDeclaringClass().isInstance(target)) {
+      try {
+        return (Object) mh.invokeExact(target);
+      } catch (Throwable t) {
+        throw InvokerHandles.propagate(t);
+      }
+    }
     try {
       return field.get(target);
     } catch (IllegalAccessException e) {
@@ -43,6 +53,21 @@ public class GetFieldInvoker implements Invoker {
     }
   }
 
+  /**
+   * Gets the field getter handle, typed {@code (Object)Object}.
+   *
+   * @return the handle, or null if the field cannot be read through a method handle
+   * @since 3.5.2
+   */
+  public MethodHandle getHandle() {
+    MethodHandle mh = handle;
+    if (mh == null) {
+      mh = InvokerHandles.unreflectGetter(field);
+      handle = mh;
+    }
+    return mh == InvokerHandles.UNAVAILABLE ? null : mh;
+  }
+
   @Override
   public Class<?> getType() {
     return field.getType();
@@ -0,0 +1,109 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Creates the method handles behind the invokers. A member that is not accessible is made accessible the same way the
+ * reflective invokers do it, and a member that still cannot be unreflected (or does not fit the requested shape, e.g.
+ * a static member) gets {@link #UNAVAILABLE} so that its invoker keeps using reflection.
+ */
+final class InvokerHandles {
+
+  static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  static final MethodType METHOD_SETTER_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+  static final MethodType FIELD_SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  static final MethodHandle UNAVAILABLE = MethodHandles.constant(Object.class, null);
+
+  private InvokerHandles() {
+    // Prevent Instantiation of Static Class
+  }
+
+  static MethodHandle unreflect(Method method, MethodType type) {
+    return create(method, type, MethodHandles.Lookup::unreflect);
+  }
+
+  static MethodHandle unreflectGetter(Field field) {
+    return create(field, GETTER_TYPE, MethodHandles.Lookup::unreflectGetter);
+  }
+
+  static MethodHandle unreflectSetter(Field field) {
+    return create(field, FIELD_SETTER_TYPE, MethodHandles.Lookup::unreflectSetter);
+  }
+
+  /**
+   * Tells whether a value can be passed to a handle parameter of the given type without a conversion that the
+   * reflective path would do differently. Anything else goes through reflection, which throws the usual
+   * {@link IllegalArgumentException} for a mismatch (or applies a widening conversion).
+   */
+  static boolean accepts(Class<?> type, Object value) {
+    if (type.isPrimitive()) {
+      return value != null && value.getClass() == wrapperOf(type);
+    }
+    return value == null || type.isInstance(value);
+  }
+
+  private static Class<?> wrapperOf(Class<?> type) {
+    return MethodType.methodType(type).wrap().returnType();
+  }
+
+  /**
+   * Rethrows what a field handle threw. Field access cannot throw checked exceptions, so anything else is a bug.
+   */
+  static RuntimeException propagate(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    }
+    return new ReflectionException(t);
+  }
+
+  private static <T extends AccessibleObject> MethodHandle create(T member, MethodType type, Unreflector<T> unreflector) {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      return unreflector.unreflect(lookup, member).asType(type);
+    } catch (IllegalAccessException e) {
+      if (Reflector.canControlMemberAccessible()) {
+        try {
+          member.setAccessible(true);
+          return unreflector.unreflect(lookup, member).asType(type);
+        } catch (IllegalAccessException | RuntimeException e2) {
+          return UNAVAILABLE;
+        }
+      }
+      return UNAVAILABLE;
+    } catch (RuntimeException e) {
+      return UNAVAILABLE;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Unreflector<T> {
+    MethodHandle unreflect(MethodHandles.Lookup lookup, T member) throws IllegalAccessException;
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2019 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.reflection.invoker;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
@@ -22,6 +24,9 @@ import org.apache.ibatis.reflection.Reflector;
 
 /**
  * 方法调用者对象，用于保存方法对象 + 方法的参数类型或者返回值类型
+ * <p>
+ * Getters and setters are invoked through a {@link MethodHandle} created on first use; other methods, and members
+ * that cannot be unreflected, are invoked reflectively.
  *
  * @author Clinton Begin
  */
@@ -29,11 +34,15 @@ public class MethodInvoker implements Invoker {
 
   private final Class<?> type;
   private final Method method;
+  private final int parameterCount;
+  // racy single-check: method handles are immutable, so a duplicate is harmless
+  private MethodHandle handle;
 
   public MethodInvoker(Method method) {
     this.method = method;
+    this.parameterCount = method.getParameterTypes().length;
 
-    if (method.getParameterTypes().length == 1) {
+    if (parameterCount == 1) {
       // 参数值为1，则type存储入参的类型
       // 这里应该是表示的是setter方法
       type = method.getParameterTypes()[0];
@@ -46,6 +55,18 @@ public class MethodInvoker implements Invoker {
 
   @Override
   public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    final MethodHandle mh = getHandle();
+    if (mh != null && args != null && args.length == parameterCount && method.getDeclaringClass().isInstance(target)
+        && (parameterCount == 0 || InvokerHandles.accepts(type, args[0]))) {
+      // the argument types were checked above, so whatever the handle throws comes from the method itself
+      try {
+        return parameterCount == 0 ? (Object) mh.invokeExact(target) : (Object) mh.invokeExact(target, args[0]);
+      } catch (WrongMethodTypeException e) {
+        throw new IllegalArgumentException(e);
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
     try {
       return method.invoke(target, args);
     } catch (IllegalAccessException e) {
@@ -58,6 +79,28 @@ public class MethodInvoker implements Invoker {
     }
   }
 
+  /**
+   * Gets the method handle of a getter, typed {@code (Object)Object}, or of a setter, typed
+   * {@code (Object, Object)Object}.
+   *
+   * @return the handle, or null if the method cannot be invoked through a method handle
+   * @since 3.5.2
+   */
+  public MethodHandle getHandle() {
+    MethodHandle mh = handle;
+    if (mh == null) {
+      if (parameterCount == 0) {
+        mh = InvokerHandles.unreflect(method, InvokerHandles.GETTER_TYPE);
+      } else if (parameterCount == 1) {
+        mh = InvokerHandles.unreflect(method, InvokerHandles.METHOD_SETTER_TYPE);
+      } else {
+        mh = InvokerHandles.UNAVAILABLE;
+      }
+      handle = mh;
+    }
+    return mh == InvokerHandles.UNAVAILABLE ? null : mh;
+  }
+
   @Override
   public Class<?> getType() {
     return type;
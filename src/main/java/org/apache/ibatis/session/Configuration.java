@@ -25,6 +25,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -37,9 +43,16 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.CompactCacheSerializer;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.cache.impl.JavaCacheSerializer;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
@@ -113,6 +126,11 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean compiledRowMappingEnabled;
+  protected boolean nestedResultStreamingEnabled;
+  protected boolean parallelRowMappingEnabled;
+  protected int parallelRowMappingBatchSize = 512;
+  protected java.util.concurrent.Executor parallelRowMappingExecutor;
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
@@ -125,6 +143,12 @@ public class Configuration {
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
+  protected int maxBatchSize;
+  protected long maxBatchBytes;
+  protected boolean batchGroupingEnabled;
+  protected boolean batchInsertRewriteEnabled;
+  protected int batchInsertMaxParameters = 2000;
+  protected volatile java.util.concurrent.Executor asyncMapperExecutor;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
   protected AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior = AutoMappingUnknownColumnBehavior.NONE;
 
@@ -134,6 +158,7 @@ public class Configuration {
   protected ObjectWrapperFactory objectWrapperFactory = new DefaultObjectWrapperFactory();
 
   protected boolean lazyLoadingEnabled = false;
+  protected int defaultBatchFetchSize = 50;
   protected ProxyFactory proxyFactory = new JavassistProxyFactory(); // #224 Using internal Javassist instead of OGNL
 
   protected String databaseId;
@@ -154,6 +179,12 @@ public class Configuration {
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
 
+  /**
+   * 结果映射计划缓存（自动映射列表、列划分、预编译行映射器），按 ResultMap id + 结果集列签名跨语句复用
+   */
+  protected final LruCache autoMappingPlanCache = new LruCache(new ConcurrentPerpetualCache("Auto mapping plans"));
+  protected int autoMappingPlanCacheSize = 1024;
+
   /**
    * 此mapper就是用来存储sqlSource key为 [namespace + "." + id] ，value就是代表具体的映射语句，其中包含着SqlSource
    */
@@ -172,6 +203,7 @@ public class Configuration {
   protected final Collection<CacheRefResolver> incompleteCacheRefs = new LinkedList<>();
   protected final Collection<ResultMapResolver> incompleteResultMaps = new LinkedList<>();
   protected final Collection<MethodResolver> incompleteMethods = new LinkedList<>();
+  protected final ReentrantLock incompleteElementsLock = new ReentrantLock();
 
   /*
    * A map holds cache-ref relationship. The key is the namespace that
@@ -195,10 +227,16 @@ public class Configuration {
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+    typeAliasRegistry.registerAlias("WEIGHTED", WeightedCache.class);
+
+    typeAliasRegistry.registerAlias("JDK", JavaCacheSerializer.class);
+    typeAliasRegistry.registerAlias("COMPACT", CompactCacheSerializer.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -274,6 +312,118 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isNestedResultStreamingEnabled() {
+    return nestedResultStreamingEnabled;
+  }
+
+  /**
+   * Streams nested result maps consumed through a cursor or a custom result handler as if every statement was
+   * declared with {@code resultOrdered=true}: an aggregate is emitted once the key of its root row changes and the rows
+   * it was built from are released, so the join runs in constant memory. The rows must be ordered by the root key.
+   *
+   * @since 3.5.2
+   */
+  public void setNestedResultStreamingEnabled(boolean nestedResultStreamingEnabled) {
+    this.nestedResultStreamingEnabled = nestedResultStreamingEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isParallelRowMappingEnabled() {
+    return parallelRowMappingEnabled;
+  }
+
+  /**
+   * Maps the rows of simple result maps on the {@link #getParallelRowMappingExecutor() row mapping executor}. The
+   * result set is still read on the calling thread and the rows are handed to result handlers in order; only object
+   * creation and setter calls run in parallel, so the object factory must be thread safe.
+   *
+   * @since 3.5.2
+   */
+  public void setParallelRowMappingEnabled(boolean parallelRowMappingEnabled) {
+    this.parallelRowMappingEnabled = parallelRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getParallelRowMappingBatchSize() {
+    return parallelRowMappingBatchSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setParallelRowMappingBatchSize(int parallelRowMappingBatchSize) {
+    this.parallelRowMappingBatchSize = parallelRowMappingBatchSize;
+  }
+
+  /**
+   * Returns the executor that creates and populates result objects when parallel row mapping is enabled.
+   *
+   * @return the configured executor, or the common fork-join pool if none was set
+   * @since 3.5.2
+   */
+  public java.util.concurrent.Executor getParallelRowMappingExecutor() {
+    return parallelRowMappingExecutor == null ? ForkJoinPool.commonPool() : parallelRowMappingExecutor;
+  }
+
+  /**
+   * Sets the executor that creates and populates result objects when parallel row mapping is enabled. The work is
+   * CPU bound and never blocks on the database.
+   *
+   * @since 3.5.2
+   */
+  public void setParallelRowMappingExecutor(java.util.concurrent.Executor parallelRowMappingExecutor) {
+    this.parallelRowMappingExecutor = parallelRowMappingExecutor;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getAutoMappingPlanCacheSize() {
+    return autoMappingPlanCacheSize;
+  }
+
+  /**
+   * Sets the number of mapping plans kept by {@link #getAutoMappingPlanCache()}. 0 disables the cache.
+   *
+   * @since 3.5.2
+   */
+  public void setAutoMappingPlanCacheSize(int autoMappingPlanCacheSize) {
+    this.autoMappingPlanCacheSize = autoMappingPlanCacheSize;
+    autoMappingPlanCache.setSize(autoMappingPlanCacheSize);
+    autoMappingPlanCache.clear();
+  }
+
+  /**
+   * Gets the cache of result mapping plans shared by all statements. Keys identify a result map, a column prefix and
+   * the layout of the result set, so a plan is built once and reused by every execution that returns the same columns.
+   *
+   * @since 3.5.2
+   */
+  public Cache getAutoMappingPlanCache() {
+    return autoMappingPlanCache;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -383,6 +533,23 @@ public class Configuration {
     this.aggressiveLazyLoading = aggressiveLazyLoading;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public int getDefaultBatchFetchSize() {
+    return defaultBatchFetchSize;
+  }
+
+  /**
+   * Sets the number of parents resolved by one query for nested selects declared with {@code fetchType="batch"} that
+   * do not specify a {@code batchSize}.
+   *
+   * @since 3.5.2
+   */
+  public void setDefaultBatchFetchSize(int defaultBatchFetchSize) {
+    this.defaultBatchFetchSize = defaultBatchFetchSize;
+  }
+
   public boolean isMultipleResultSetsEnabled() {
     return multipleResultSetsEnabled;
   }
@@ -415,6 +582,137 @@ public class Configuration {
     this.defaultExecutorType = defaultExecutorType;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Sets the number of rows a batch may hold before the batch executor sends all pending batches; 0 means no limit.
+   *
+   * @since 3.5.2
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public long getMaxBatchBytes() {
+    return maxBatchBytes;
+  }
+
+  /**
+   * Sets the estimated size of the parameters the batch executor may hold before it sends all pending batches; 0 means
+   * no limit.
+   *
+   * @since 3.5.2
+   */
+  public void setMaxBatchBytes(long maxBatchBytes) {
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isBatchGroupingEnabled() {
+    return batchGroupingEnabled;
+  }
+
+  /**
+   * Keeps one open batch per statement and SQL in the batch executor, so that interleaved statements do not break
+   * each other's batch. Batches are then executed in the order of their first statement.
+   *
+   * @since 3.5.2
+   */
+  public void setBatchGroupingEnabled(boolean batchGroupingEnabled) {
+    this.batchGroupingEnabled = batchGroupingEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isBatchInsertRewriteEnabled() {
+    return batchInsertRewriteEnabled;
+  }
+
+  /**
+   * Makes the batch executor send batched {@code INSERT ... VALUES (...)} statements as multi-row
+   * {@code INSERT ... VALUES (...), (...)} statements instead of JDBC batches.
+   *
+   * @since 3.5.2
+   */
+  public void setBatchInsertRewriteEnabled(boolean batchInsertRewriteEnabled) {
+    this.batchInsertRewriteEnabled = batchInsertRewriteEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getBatchInsertMaxParameters() {
+    return batchInsertMaxParameters;
+  }
+
+  /**
+   * Sets the maximum number of parameters of a rewritten multi-row insert.
+   *
+   * @since 3.5.2
+   */
+  public void setBatchInsertMaxParameters(int batchInsertMaxParameters) {
+    this.batchInsertMaxParameters = batchInsertMaxParameters;
+  }
+
+  /**
+   * Returns the executor that runs mapper methods declared to return a {@link java.util.concurrent.CompletableFuture}.
+   *
+   * @return the configured executor, or a pool of daemon threads created on first use if none was set
+   * @since 3.5.2
+   */
+  public java.util.concurrent.Executor getAsyncMapperExecutor() {
+    java.util.concurrent.Executor executor = asyncMapperExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        if (asyncMapperExecutor == null) {
+          asyncMapperExecutor = newAsyncMapperExecutor();
+        }
+        executor = asyncMapperExecutor;
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * The mapper methods block on JDBC, so they get their own pool instead of the common fork-join pool. It has as many
+   * threads as a {@link PooledDataSource} has connections, or 10 (the default pool size) for other data sources.
+   */
+  private java.util.concurrent.Executor newAsyncMapperExecutor() {
+    final int threads = environment != null && environment.getDataSource() instanceof PooledDataSource
+        ? ((PooledDataSource) environment.getDataSource()).getPoolMaximumActiveConnections() : 10;
+    final AtomicInteger threadNumber = new AtomicInteger();
+    final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "mybatis-async-mapper-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Sets the executor that runs mapper methods declared to return a {@link java.util.concurrent.CompletableFuture}.
+   * Each call opens its own session on a thread of this executor, so it should not have more threads than the
+   * data source has connections.
+   *
+   * @since 3.5.2
+   */
+  public void setAsyncMapperExecutor(java.util.concurrent.Executor asyncMapperExecutor) {
+    this.asyncMapperExecutor = asyncMapperExecutor;
+  }
+
   public boolean isCacheEnabled() {
     return cacheEnabled;
   }
@@ -738,7 +1036,12 @@ public class Configuration {
   }
 
   public void addIncompleteStatement(XMLStatementBuilder incompleteStatement) {
-    incompleteStatements.add(incompleteStatement);
+    incompleteElementsLock.lock();
+    try {
+      incompleteStatements.add(incompleteStatement);
+    } finally {
+      incompleteElementsLock.unlock();
+    }
   }
 
   public Collection<CacheRefResolver> getIncompleteCacheRefs() {
@@ -746,7 +1049,12 @@ public class Configuration {
   }
 
   public void addIncompleteCacheRef(CacheRefResolver incompleteCacheRef) {
-    incompleteCacheRefs.add(incompleteCacheRef);
+    incompleteElementsLock.lock();
+    try {
+      incompleteCacheRefs.add(incompleteCacheRef);
+    } finally {
+      incompleteElementsLock.unlock();
+    }
   }
 
   public Collection<ResultMapResolver> getIncompleteResultMaps() {
@@ -754,17 +1062,39 @@ public class Configuration {
   }
 
   public void addIncompleteResultMap(ResultMapResolver resultMapResolver) {
-    incompleteResultMaps.add(resultMapResolver);
+    incompleteElementsLock.lock();
+    try {
+      incompleteResultMaps.add(resultMapResolver);
+    } finally {
+      incompleteElementsLock.unlock();
+    }
   }
 
   public void addIncompleteMethod(MethodResolver builder) {
-    incompleteMethods.add(builder);
+    incompleteElementsLock.lock();
+    try {
+      incompleteMethods.add(builder);
+    } finally {
+      incompleteElementsLock.unlock();
+    }
   }
 
   public Collection<MethodResolver> getIncompleteMethods() {
     return incompleteMethods;
   }
 
+  /**
+   * Returns the lock guarding the incomplete statement, cache-ref, result map and method collections.
+   * A {@link java.util.concurrent.locks.Lock} is used instead of a monitor so that virtual threads resolving
+   * pending elements are not pinned to their carrier.
+   *
+   * @return the lock to hold while iterating over any of the incomplete element collections
+   * @since 3.5.2
+   */
+  public ReentrantLock getIncompleteElementsLock() {
+    return incompleteElementsLock;
+  }
+
   public MappedStatement getMappedStatement(String id) {
     return this.getMappedStatement(id, true);
   }
@@ -830,24 +1160,33 @@ public class Configuration {
   protected void buildAllStatements() {
     parsePendingResultMaps();
     if (!incompleteCacheRefs.isEmpty()) {
-      synchronized (incompleteCacheRefs) {
+      incompleteElementsLock.lock();
+      try {
         incompleteCacheRefs.removeIf(x -> x.resolveCacheRef() != null);
+      } finally {
+        incompleteElementsLock.unlock();
       }
     }
     if (!incompleteStatements.isEmpty()) {
-      synchronized (incompleteStatements) {
+      incompleteElementsLock.lock();
+      try {
         incompleteStatements.removeIf(x -> {
           x.parseStatementNode();
           return true;
         });
+      } finally {
+        incompleteElementsLock.unlock();
       }
     }
     if (!incompleteMethods.isEmpty()) {
-      synchronized (incompleteMethods) {
+      incompleteElementsLock.lock();
+      try {
         incompleteMethods.removeIf(x -> {
           x.resolve();
           return true;
         });
+      } finally {
+        incompleteElementsLock.unlock();
       }
     }
   }
@@ -866,7 +1205,8 @@ public class Configuration {
     if (incompleteResultMaps.isEmpty()) {
       return;
     }
-    synchronized (incompleteResultMaps) {
+    incompleteElementsLock.lock();
+    try {
       boolean resolved;
       IncompleteElementException ex = null;
       do {
@@ -886,6 +1226,8 @@ public class Configuration {
         // At least one result map is unresolvable.
         throw ex;
       }
+    } finally {
+      incompleteElementsLock.unlock();
     }
   }
 
@@ -19,6 +19,8 @@ import java.io.Closeable;
 import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
@@ -250,6 +252,23 @@ public interface SqlSession extends Closeable {
    */
   List<BatchResult> flushStatements();
 
+  /**
+   * Flushes batch statements on the given executor without waiting for them. Later flushes, selects and commits wait
+   * for the flush and fail if it failed.
+   * @param executor the executor that sends the statements
+   * @return a future of the BatchResult list of updated records
+   * @since 3.5.2
+   */
+  default CompletableFuture<List<BatchResult>> flushStatementsAsync(Executor executor) {
+    final CompletableFuture<List<BatchResult>> future = new CompletableFuture<>();
+    try {
+      future.complete(flushStatements());
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /**
    * Closes the session.
    */
@@ -24,6 +24,8 @@ import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
@@ -374,6 +376,15 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSession.flushStatements();
   }
 
+  @Override
+  public CompletableFuture<List<BatchResult>> flushStatementsAsync(Executor executor) {
+    final SqlSession sqlSession = localSqlSession.get();
+    if (sqlSession == null) {
+      throw new SqlSessionException("Error:  Cannot flush statements.  No managed session is started.");
+    }
+    return sqlSession.flushStatementsAsync(executor);
+  }
+
   @Override
   public void close() {
     final SqlSession sqlSession = localSqlSession.get();
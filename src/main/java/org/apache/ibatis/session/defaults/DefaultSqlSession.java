@@ -23,6 +23,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.ibatis.binding.BindingException;
 import org.apache.ibatis.cursor.Cursor;
@@ -280,6 +282,25 @@ public class DefaultSqlSession implements SqlSession {
     }
   }
 
+  @Override
+  public CompletableFuture<List<BatchResult>> flushStatementsAsync(java.util.concurrent.Executor flushExecutor) {
+    final CompletableFuture<List<BatchResult>> flush;
+    try {
+      flush = executor.flushStatementsAsync(flushExecutor);
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error flushing statements.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+    return flush.exceptionally(e -> {
+      final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      if (cause instanceof Exception) {
+        throw ExceptionFactory.wrapException("Error flushing statements.  Cause: " + cause, (Exception) cause);
+      }
+      throw new CompletionException(cause);
+    });
+  }
+
   @Override
   public void close() {
     try {
@@ -0,0 +1,73 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.reactive;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.reactivestreams.Subscriber;
+
+/**
+ * Streams the rows of a select from a {@link Cursor}, reading only as many rows as requested.
+ */
+class CursorSubscription<E> extends ScheduledSubscription<E> {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final String statement;
+  private final Object parameter;
+  private SqlSession sqlSession;
+  private Cursor<E> cursor;
+  private Iterator<E> iterator;
+
+  CursorSubscription(Subscriber<? super E> subscriber, Executor scheduler, SqlSessionFactory sqlSessionFactory,
+      String statement, Object parameter) {
+    super(subscriber, scheduler);
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.statement = statement;
+    this.parameter = parameter;
+  }
+
+  @Override
+  protected long emit(long demand) {
+    if (iterator == null) {
+      sqlSession = sqlSessionFactory.openSession();
+      cursor = sqlSession.selectCursor(statement, parameter);
+      iterator = cursor.iterator();
+    }
+    long emitted = 0;
+    while (emitted < demand && !isCancelled()) {
+      if (!iterator.hasNext()) {
+        return -1;
+      }
+      subscriber.onNext(iterator.next());
+      emitted++;
+    }
+    return !isCancelled() && !iterator.hasNext() ? -1 : emitted;
+  }
+
+  @Override
+  protected void release() {
+    if (sqlSession != null) {
+      // closing the session closes the cursor
+      sqlSession.close();
+      sqlSession = null;
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.reactive;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.reactivestreams.Publisher;
+
+/**
+ * {@link ReactiveSqlSession} running the blocking JDBC calls on a bounded scheduler.
+ * <pre>
+ * try (DefaultReactiveSqlSession session = new DefaultReactiveSqlSession(sqlSessionFactory, 10)) {
+ *   Publisher&lt;Blog&gt; blogs = session.selectMany("selectBlogs");
+ * }
+ * </pre>
+ * The scheduler should not have more threads than the data source has connections, since each running subscription
+ * holds one.
+ *
+ * @since 3.5.2
+ */
+public class DefaultReactiveSqlSession implements ReactiveSqlSession, Closeable {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final java.util.concurrent.Executor scheduler;
+  private final ExecutorService ownedScheduler;
+
+  /**
+   * Runs the statements on the given scheduler, which stays owned by the caller.
+   *
+   * @param sqlSessionFactory the factory of the sessions running the statements
+   * @param scheduler the scheduler running the blocking calls
+   */
+  public DefaultReactiveSqlSession(SqlSessionFactory sqlSessionFactory, java.util.concurrent.Executor scheduler) {
+    this.sqlSessionFactory = Objects.requireNonNull(sqlSessionFactory, "sqlSessionFactory");
+    this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+    this.ownedScheduler = null;
+  }
+
+  /**
+   * Runs the statements on a pool of daemon threads that is shut down by {@link #close()}.
+   *
+   * @param sqlSessionFactory the factory of the sessions running the statements
+   * @param maxThreads the number of threads of the pool
+   */
+  public DefaultReactiveSqlSession(SqlSessionFactory sqlSessionFactory, int maxThreads) {
+    this.sqlSessionFactory = Objects.requireNonNull(sqlSessionFactory, "sqlSessionFactory");
+    final AtomicInteger threadNumber = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "mybatis-reactive-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    this.scheduler = pool;
+    this.ownedScheduler = pool;
+  }
+
+  @Override
+  public <T> Publisher<T> selectOne(String statement) {
+    return selectOne(statement, null);
+  }
+
+  @Override
+  public <T> Publisher<T> selectOne(String statement, Object parameter) {
+    return subscriber -> {
+      Objects.requireNonNull(subscriber, "subscriber");
+      subscriber.onSubscribe(new SingleSubscription<T>(subscriber, scheduler, () -> {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+          return sqlSession.selectOne(statement, parameter);
+        }
+      }));
+    };
+  }
+
+  @Override
+  public <E> Publisher<E> selectMany(String statement) {
+    return selectMany(statement, null);
+  }
+
+  @Override
+  public <E> Publisher<E> selectMany(String statement, Object parameter) {
+    return subscriber -> {
+      Objects.requireNonNull(subscriber, "subscriber");
+      subscriber.onSubscribe(new CursorSubscription<E>(subscriber, scheduler, sqlSessionFactory, statement, parameter));
+    };
+  }
+
+  @Override
+  public Publisher<Integer> update(String statement) {
+    return update(statement, null);
+  }
+
+  @Override
+  public Publisher<Integer> update(String statement, Object parameter) {
+    return subscriber -> {
+      Objects.requireNonNull(subscriber, "subscriber");
+      subscriber.onSubscribe(new SingleSubscription<>(subscriber, scheduler, () -> {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+          int rows = sqlSession.update(statement, parameter);
+          sqlSession.commit();
+          return rows;
+        }
+      }));
+    };
+  }
+
+  /**
+   * Shuts down the scheduler if it was created by this session. Subscriptions requesting more data after that fail
+   * with a {@link java.util.concurrent.RejectedExecutionException}.
+   */
+  @Override
+  public void close() {
+    if (ownedScheduler != null) {
+      ownedScheduler.shutdown();
+    }
+  }
+
+}
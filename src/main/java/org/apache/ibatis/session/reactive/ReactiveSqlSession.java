@@ -0,0 +1,83 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.reactive;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Non-blocking counterpart of {@link org.apache.ibatis.session.SqlSession} returning Reactive Streams publishers.
+ * Nothing is executed until a subscriber requests data, and each subscription runs in its own
+ * {@link org.apache.ibatis.session.SqlSession} (and transaction) on the scheduler of the reactive session.
+ *
+ * @see DefaultReactiveSqlSession
+ * @since 3.5.2
+ */
+public interface ReactiveSqlSession {
+
+  /**
+   * Retrieve a single row mapped from the statement key.
+   * @param <T> the returned object type
+   * @param statement Unique identifier matching the statement to use.
+   * @return Publisher of the mapped object, empty if there is no row
+   */
+  <T> Publisher<T> selectOne(String statement);
+
+  /**
+   * Retrieve a single row mapped from the statement key and parameter.
+   * @param <T> the returned object type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Publisher of the mapped object, empty if there is no row
+   */
+  <T> Publisher<T> selectOne(String statement, Object parameter);
+
+  /**
+   * Retrieve the mapped objects from the statement key. Rows are read from a
+   * {@link org.apache.ibatis.cursor.Cursor} as the subscriber requests them, so the driver fetches them in chunks of
+   * the fetch size of the statement.
+   * @param <E> the returned element type
+   * @param statement Unique identifier matching the statement to use.
+   * @return Publisher of the mapped objects
+   */
+  <E> Publisher<E> selectMany(String statement);
+
+  /**
+   * Retrieve the mapped objects from the statement key and parameter. Rows are read from a
+   * {@link org.apache.ibatis.cursor.Cursor} as the subscriber requests them, so the driver fetches them in chunks of
+   * the fetch size of the statement.
+   * @param <E> the returned element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Publisher of the mapped objects
+   */
+  <E> Publisher<E> selectMany(String statement, Object parameter);
+
+  /**
+   * Execute an insert, update or delete statement and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @return Publisher of the number of rows affected
+   */
+  Publisher<Integer> update(String statement);
+
+  /**
+   * Execute an insert, update or delete statement and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Publisher of the number of rows affected
+   */
+  Publisher<Integer> update(String statement, Object parameter);
+
+}
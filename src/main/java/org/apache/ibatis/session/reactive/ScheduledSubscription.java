@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.reactive;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Subscription whose signals are all emitted from tasks run on the scheduler, one task at a time. Requests and
+ * cancellations only record the demand and schedule a task if none is pending, so they never block the caller and can
+ * be called from {@code onNext}.
+ */
+abstract class ScheduledSubscription<T> implements Subscription, Runnable {
+
+  protected final Subscriber<? super T> subscriber;
+  private final Executor scheduler;
+  private final AtomicLong requested = new AtomicLong();
+  private final AtomicInteger pendingTasks = new AtomicInteger();
+  private volatile boolean cancelled;
+  private volatile Throwable invalidRequest;
+  // only accessed by the scheduled tasks
+  private boolean done;
+
+  ScheduledSubscription(Subscriber<? super T> subscriber, Executor scheduler) {
+    this.subscriber = subscriber;
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public void request(long n) {
+    if (n <= 0) {
+      invalidRequest = new IllegalArgumentException("Rule 3.9: the number of requested elements must be positive but was " + n);
+    } else {
+      long current;
+      do {
+        current = requested.get();
+      } while (current != Long.MAX_VALUE && !requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+    }
+    schedule();
+  }
+
+  @Override
+  public void cancel() {
+    cancelled = true;
+    schedule();
+  }
+
+  private void schedule() {
+    if (pendingTasks.getAndIncrement() == 0) {
+      try {
+        scheduler.execute(this);
+      } catch (RejectedExecutionException e) {
+        // no task is running, so the signals cannot overlap
+        if (!done) {
+          done = true;
+          release();
+          if (!cancelled) {
+            subscriber.onError(e);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public final void run() {
+    int missed = 1;
+    do {
+      if (!done) {
+        if (cancelled) {
+          done = true;
+          release();
+        } else if (invalidRequest != null) {
+          done = true;
+          release();
+          subscriber.onError(invalidRequest);
+        } else {
+          try {
+            long emitted = emit(requested.get());
+            if (emitted == -1) {
+              done = true;
+              release();
+              if (!cancelled) {
+                subscriber.onComplete();
+              }
+            } else if (emitted > 0) {
+              requested.accumulateAndGet(emitted, (current, n) -> current == Long.MAX_VALUE ? current : current - n);
+            }
+          } catch (RuntimeException | Error e) {
+            done = true;
+            release();
+            if (!cancelled) {
+              subscriber.onError(e);
+            }
+          }
+        }
+      }
+      missed = pendingTasks.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  protected boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Emits up to {@code demand} elements.
+   *
+   * @param demand the number of elements requested and not emitted yet
+   * @return the number of elements emitted, or -1 if the subscription is complete
+   */
+  protected abstract long emit(long demand);
+
+  /**
+   * Releases the resources of the subscription once it is complete, failed or cancelled.
+   */
+  protected abstract void release();
+
+}
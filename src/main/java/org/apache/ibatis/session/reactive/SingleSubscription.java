@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.reactive;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Subscriber;
+
+/**
+ * Emits the result of a single call, or nothing if it returns null, once the first element is requested.
+ */
+class SingleSubscription<T> extends ScheduledSubscription<T> {
+
+  private final Supplier<T> call;
+
+  SingleSubscription(Subscriber<? super T> subscriber, Executor scheduler, Supplier<T> call) {
+    super(subscriber, scheduler);
+    this.call = call;
+  }
+
+  @Override
+  protected long emit(long demand) {
+    if (demand > 0) {
+      T value = call.get();
+      if (value != null && !isCancelled()) {
+        subscriber.onNext(value);
+      }
+      return -1;
+    }
+    return 0;
+  }
+
+  @Override
+  protected void release() {
+    // the call opens and closes its own session
+  }
+
+}
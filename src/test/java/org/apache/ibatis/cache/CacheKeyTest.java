@@ -87,6 +87,39 @@ class CacheKeyTest {
     assertTrue(key1.equals(key2));
   }
 
+  @Test
+  void shouldTreatPrimitiveAndBoxedUpdatesAlike() throws Exception {
+    CacheKey key1 = new CacheKey(1);
+    key1.update(1);
+    key1.update(2L);
+    key1.update("three");
+    CacheKey key2 = new CacheKey(new Object[] { 1, 2L, "three" });
+    CacheKey key3 = new CacheKey(new Object[] { 1L, 2L, "three" });
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+    assertNotEquals(key1, key3);
+    assertEquals(key1, serialize(key1));
+  }
+
+  @Test
+  void shouldGrowAndCloneIndependently() throws Exception {
+    CacheKey key1 = new CacheKey(2);
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 100; i++) {
+      key1.update(i);
+      key2.update(Integer.valueOf(i));
+      key1.update("s" + i);
+      key2.update("s" + i);
+    }
+    assertEquals(200, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    CacheKey clone = key1.clone();
+    clone.update(100);
+    assertEquals(key1, key2);
+    assertNotEquals(key1, clone);
+  }
+
   @Test
   void serializationExceptionTest() {
     CacheKey cacheKey = new CacheKey();
@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.CompactCacheSerializer;
+import org.apache.ibatis.cache.impl.JavaCacheSerializer;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class CompactCacheSerializerTest {
+
+  private final CacheSerializer serializer = new CompactCacheSerializer();
+
+  @Test
+  void shouldCopySimpleValues() {
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    List<Object> values = new ArrayList<>(Arrays.asList(null, 1, -2L, (short) 3, (byte) 4, 'c', 1.5f, -2.5d, true,
+        "plain", "ünicode 中", new BigDecimal("-12345.6789"), timestamp, new byte[] {1, 2},
+        Thread.State.BLOCKED, LocalDate.of(2019, 1, 31)));
+    @SuppressWarnings("unchecked")
+    List<Object> copy = (List<Object>) serializer.deserialize(serializer.serialize(values));
+    assertNotSame(values, copy);
+    assertEquals(values.size(), copy.size());
+    for (int i = 0; i < values.size(); i++) {
+      if (values.get(i) instanceof byte[]) {
+        assertTrue(Arrays.equals((byte[]) values.get(i), (byte[]) copy.get(i)));
+      } else {
+        assertEquals(values.get(i), copy.get(i));
+      }
+    }
+  }
+
+  @Test
+  void shouldCopyResultObjectsAndKeepReferences() {
+    Author author = new Author(101, "jim");
+    Post first = new Post(1, "first", author);
+    Post second = new Post(2, "second", author);
+    author.posts.add(first);
+    author.posts.add(second);
+    author.tags.put("level", 7);
+
+    Author copy = (Author) serializer.deserialize(serializer.serialize(author));
+    assertNotSame(author, copy);
+    assertEquals(101, copy.id);
+    assertEquals("jim", copy.name);
+    assertEquals(7, copy.tags.get("level"));
+    assertNotSame(author.cached, copy.cached);
+    assertEquals(2, copy.posts.size());
+    assertEquals("second", copy.posts.get(1).subject);
+    assertSame(copy, copy.posts.get(0).author);
+    assertSame(copy, copy.posts.get(1).author);
+  }
+
+  @Test
+  void shouldBeSmallerThanJavaSerialization() {
+    List<Post> posts = new ArrayList<>();
+    Author author = new Author(101, "jim");
+    for (int i = 0; i < 100; i++) {
+      posts.add(new Post(i, "subject " + i, author));
+    }
+    int compact = serializer.serialize(posts).length;
+    int java = new JavaCacheSerializer().serialize(posts).length;
+    assertTrue(compact < java, compact + " bytes compact vs " + java + " bytes java");
+  }
+
+  @Test
+  void shouldBeUsableBySerializedCache() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), serializer);
+    Author author = new Author(1, "a");
+    cache.putObject(0, author);
+    Author copy = (Author) cache.getObject(0);
+    assertNotSame(author, copy);
+    assertEquals("a", copy.name);
+  }
+
+  static class Author implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private int id;
+    private String name;
+    private final List<Post> posts = new ArrayList<>();
+    private final Map<String, Object> tags = new HashMap<>();
+    private transient Object cached = new Object();
+
+    Author() {
+    }
+
+    Author(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+  }
+
+  static class Post implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private long id;
+    private String subject;
+    private Author author;
+
+    Post() {
+    }
+
+    Post(long id, String subject, Author author) {
+      this.id = id;
+      this.subject = subject;
+      this.author = author;
+    }
+  }
+
+}
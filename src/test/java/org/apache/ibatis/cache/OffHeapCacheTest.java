@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.impl.JavaCacheSerializer;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldDemonstrateHowAllObjectsAreKept() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 10000; i++) {
+      cache.putObject(i, "value " + i);
+      assertEquals("value " + i, cache.getObject(i));
+    }
+    assertEquals(10000, cache.getSize());
+  }
+
+  @Test
+  void shouldEvictOldestSlabWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.setMaximumMemory(4096);
+    cache.initialize();
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    assertTrue(cache.getSize() < 1000);
+    assertNull(cache.getObject(0));
+    assertEquals(999, cache.getObject(999));
+  }
+
+  @Test
+  void shouldNotCacheValuesLargerThanASlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(64);
+    cache.setMaximumMemory(128);
+    cache.initialize();
+    cache.putObject(0, "small");
+    cache.putObject(1, new String(new char[100]));
+    assertEquals("small", cache.getObject(0));
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldRemoveAndFlushOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, 0);
+    cache.putObject(1, null);
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertEquals(1, cache.getSize());
+    cache.clear();
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldBeConfiguredByCacheBuilder() {
+    Properties properties = new Properties();
+    properties.setProperty("slabSize", "4096");
+    properties.setProperty("maximumMemory", "8192");
+    properties.setProperty("serializer", JavaCacheSerializer.class.getName());
+    Cache cache = new CacheBuilder("default").implementation(OffHeapCache.class).properties(properties).build();
+    List<String> value = new ArrayList<>();
+    value.add("a");
+    cache.putObject(0, value);
+    assertEquals(value, cache.getObject(0));
+    assertNotSame(value, cache.getObject(0));
+  }
+
+  @Test
+  void shouldReadWhileWriting() throws Exception {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(64 * 1024);
+    cache.setMaximumMemory(256 * 1024);
+    cache.initialize();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 20000; i++) {
+          int key = i % 5000;
+          cache.putObject(key, "value " + key);
+          Object value = cache.getObject(key / 2);
+          assertTrue(value == null || value.equals("value " + key / 2));
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+  }
+
+}
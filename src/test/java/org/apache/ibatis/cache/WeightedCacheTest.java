@@ -0,0 +1,105 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class WeightedCacheTest {
+
+  @Test
+  void shouldEvictLeastRecentlyUsedItemsBeyondTheWeight() {
+    WeightedCache cache = new WeightedCache(new ConcurrentPerpetualCache("default"));
+    cache.setRowWeight(10);
+    cache.setMaximumWeight(100);
+    cache.putObject(0, Arrays.asList(1, 2, 3, 4, 5));
+    cache.putObject(1, Arrays.asList(1, 2, 3));
+    assertNotNull(cache.getObject(0));
+    cache.putObject(2, Arrays.asList(1, 2, 3, 4));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(2));
+    assertEquals(90, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldNotCacheItemsHeavierThanTheWeight() {
+    WeightedCache cache = new WeightedCache(new ConcurrentPerpetualCache("default"));
+    cache.setRowWeight(10);
+    cache.setMaximumWeight(100);
+    cache.putObject(0, Collections.nCopies(5, 0));
+    cache.putObject(1, Collections.nCopies(11, 0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(0));
+    assertEquals(50, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    WeightedCache cache = new WeightedCache(new ConcurrentPerpetualCache("default"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  void shouldUseConfiguredWeigher() {
+    Properties properties = new Properties();
+    properties.setProperty("maximumWeight", "10");
+    properties.setProperty("weigher", StringLengthWeigher.class.getName());
+    Cache cache = new CacheBuilder("default").implementation(PerpetualCache.class).addDecorator(WeightedCache.class)
+        .properties(properties).build();
+    cache.putObject(0, "12345");
+    cache.putObject(1, "123456");
+    assertNull(cache.getObject(0));
+    assertEquals("123456", cache.getObject(1));
+  }
+
+  @Test
+  void shouldWeighSerializedValuesByTheirLength() {
+    Properties properties = new Properties();
+    properties.setProperty("maximumWeight", "4096");
+    Cache cache = new CacheBuilder("default").implementation(PerpetualCache.class).addDecorator(WeightedCache.class)
+        .readWrite(true).properties(properties).build();
+    cache.putObject(0, new ArrayList<>(Arrays.asList("a", "b", "c")));
+    cache.putObject(1, new ArrayList<>(Arrays.asList("d", "e")));
+    assertEquals(Arrays.asList("a", "b", "c"), cache.getObject(0));
+    assertEquals(Arrays.asList("d", "e"), cache.getObject(1));
+    // about 10KB once serialized
+    cache.putObject(2, new ArrayList<>(Collections.nCopies(1000, 1)));
+    assertNull(cache.getObject(2));
+    assertNotNull(cache.getObject(0));
+  }
+
+  public static class StringLengthWeigher implements CacheWeigher {
+    @Override
+    public long weigh(Object key, Object value) {
+      return value.toString().length();
+    }
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldReportZeroWhenEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMean());
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+  @Test
+  void shouldCountSmallValuesExactly() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10; i++) {
+      histogram.record(i);
+    }
+    assertEquals(10, histogram.getCount());
+    assertEquals(5, histogram.getValueAtPercentile(50));
+    assertEquals(10, histogram.getValueAtPercentile(100));
+    assertEquals(10, histogram.getMax());
+  }
+
+  @Test
+  void shouldBoundPercentileErrorForLargeValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000000; i++) {
+      histogram.record(i);
+    }
+    assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.04);
+    assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.04);
+    assertEquals(1000000, histogram.getValueAtPercentile(100));
+    assertEquals(500000, histogram.getMean());
+  }
+
+  @Test
+  void shouldMapEveryValueToABucketContainingIt() {
+    long[] values = { 0, 1, 63, 64, 65, 127, 128, 1000, 123456789L, Long.MAX_VALUE / 3, Long.MAX_VALUE };
+    for (long value : values) {
+      int index = LatencyHistogram.indexOf(value);
+      assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.highestValueOf(index - 1) < value);
+      }
+    }
+  }
+
+  @Test
+  void shouldReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(42);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+  }
+
+}
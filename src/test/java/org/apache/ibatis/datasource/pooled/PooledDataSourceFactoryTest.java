@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Properties;
+
+import org.apache.ibatis.datasource.DataSourceException;
+import org.junit.jupiter.api.Test;
+
+class PooledDataSourceFactoryTest {
+
+  @Test
+  void shouldPrefillPoolWhenPropertiesAreSet() {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    Properties properties = hsqldbProperties("jdbc:hsqldb:mem:prefill");
+    properties.setProperty("poolMinimumIdleConnections", "3");
+    properties.setProperty("prefill", "true");
+    properties.setProperty("prefillThreads", "3");
+    properties.setProperty("prefillTimeout", "10000");
+    factory.setProperties(properties);
+
+    PooledDataSource dataSource = (PooledDataSource) factory.getDataSource();
+    try {
+      assertEquals(3, dataSource.getPoolState().getIdleConnectionCount());
+      assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    } finally {
+      dataSource.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotOpenMoreThanMaximumIdleConnections() {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    Properties properties = hsqldbProperties("jdbc:hsqldb:mem:prefill");
+    properties.setProperty("poolLockFreeEnabled", "true");
+    properties.setProperty("poolMaximumIdleConnections", "2");
+    properties.setProperty("poolMinimumIdleConnections", "4");
+    properties.setProperty("prefill", "true");
+    factory.setProperties(properties);
+
+    PooledDataSource dataSource = (PooledDataSource) factory.getDataSource();
+    try {
+      assertEquals(2, dataSource.getPoolState().getIdleConnectionCount());
+    } finally {
+      dataSource.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotPrefillByDefault() {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    Properties properties = hsqldbProperties("jdbc:hsqldb:mem:prefill");
+    properties.setProperty("poolMinimumIdleConnections", "3");
+    factory.setProperties(properties);
+
+    PooledDataSource dataSource = (PooledDataSource) factory.getDataSource();
+    assertEquals(0, dataSource.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  void shouldReportPrefillFailure() {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    Properties properties = hsqldbProperties("jdbc:unknown:prefill");
+    properties.setProperty("poolMinimumIdleConnections", "1");
+    properties.setProperty("prefill", "true");
+    assertThrows(DataSourceException.class, () -> factory.setProperties(properties));
+  }
+
+  private Properties hsqldbProperties(String url) {
+    Properties properties = new Properties();
+    properties.setProperty("driver", "org.hsqldb.jdbcDriver");
+    properties.setProperty("url", url);
+    properties.setProperty("username", "sa");
+    properties.setProperty("password", "");
+    return properties;
+  }
+
+}
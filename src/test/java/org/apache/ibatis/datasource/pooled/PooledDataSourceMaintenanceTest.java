@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.junit.jupiter.api.Test;
+
+class PooledDataSourceMaintenanceTest {
+
+  @Test
+  void shouldCountConnectionsBeingValidatedTowardsTheMaximum() throws Exception {
+    Properties props = Resources.getResourceAsProperties(BaseDataTest.JPETSTORE_PROPERTIES);
+    SlowPingDataSource ds = new SlowPingDataSource(props);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(5000);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      Connection connection = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(connection);
+      connection.close();
+      Thread.sleep(5);
+
+      Thread maintenance = new Thread(ds::maintainPool);
+      ds.slowThread = maintenance;
+      maintenance.start();
+      assertTrue(ds.pinging.await(5, TimeUnit.SECONDS));
+      new Thread(() -> {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          // ignore
+        }
+        ds.release.countDown();
+      }).start();
+
+      // waits for the connection under validation instead of opening a second one
+      connection = ds.getConnection();
+      assertSame(realConnection, PooledDataSource.unwrapConnection(connection));
+      connection.close();
+      maintenance.join();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private static class SlowPingDataSource extends PooledDataSource {
+    private final CountDownLatch pinging = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile Thread slowThread;
+
+    SlowPingDataSource(Properties props) {
+      super(props.getProperty("driver"), props.getProperty("url"), props.getProperty("username"),
+          props.getProperty("password"));
+    }
+
+    @Override
+    protected boolean pingConnection(PooledConnection conn) {
+      if (Thread.currentThread() == slowThread) {
+        pinging.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return super.pingConnection(conn);
+    }
+  }
+
+}
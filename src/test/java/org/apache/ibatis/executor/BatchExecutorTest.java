@@ -15,7 +15,33 @@
  */
 package org.apache.ibatis.executor;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
 import org.junit.jupiter.api.Test;
 
 class BatchExecutorTest extends BaseExecutorTest {
@@ -24,8 +50,214 @@ class BatchExecutorTest extends BaseExecutorTest {
   void dummy() {
   }
 
+  @Test
+  void shouldExecuteBatchesWhenMaxBatchSizeIsReached() throws Exception {
+    config.setMaxBatchSize(2);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 97; id < 100; id++) {
+        executor.update(insertStatement, new Author(id, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertEquals(1, results.get(1).getUpdateCounts().length);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldGroupInterleavedStatements() throws Exception {
+    config.setBatchGroupingEnabled(true);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(97, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(101, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(98, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(102, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(insertStatement, results.get(0).getMappedStatement());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertEquals(updateStatement, results.get(1).getMappedStatement());
+      assertEquals(2, results.get(1).getUpdateCounts().length);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldRewriteBatchedInsertsIntoMultiRowInserts() throws Exception {
+    config.setBatchInsertRewriteEnabled(true);
+    config.setBatchInsertMaxParameters(12);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      for (int id = 97; id < 100; id++) {
+        executor.update(insertStatement, new Author(id, "someone" + id, "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertArrayEquals(new int[] { 1, 1, 1 }, results.get(0).getUpdateCounts());
+      List<Author> authors = executor.query(selectStatement, 99, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("someone99", authors.get(0).getUsername());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldSplitMultiRowInsertsAtTheParameterLimit() throws Exception {
+    final List<Integer> parameterCounts = new ArrayList<>();
+    config.addInterceptor(new StatementRecorder(parameterCounts));
+    config.setBatchInsertRewriteEnabled(true);
+    config.setBatchInsertMaxParameters(12);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 95; id < 100; id++) {
+        executor.update(insertStatement, new Author(id, "someone" + id, "******", "someone@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      // 6 parameters per row, so 2 rows per statement
+      assertEquals(Arrays.asList(12, 12, 6), parameterCounts);
+      assertEquals(1, results.size());
+      assertEquals(5, results.get(0).getParameterObjects().size());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldFlushStatementsAsynchronously() throws Exception {
+    ExecutorService flushExecutor = Executors.newSingleThreadExecutor();
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(97, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(98, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      CompletableFuture<List<BatchResult>> flush = executor.flushStatementsAsync(flushExecutor);
+      executor.update(insertStatement, new Author(99, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertTrue(flush.isDone());
+      assertEquals(2, flush.get().get(0).getUpdateCounts().length);
+      assertEquals(1, results.size());
+      assertEquals(1, results.get(0).getUpdateCounts().length);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+      flushExecutor.shutdown();
+    }
+  }
+
+  @Test
+  void shouldNotOpenTheConnectionTwiceWhileFlushingAsynchronously() throws Exception {
+    config.setBatchInsertRewriteEnabled(true);
+    ExecutorService flushExecutor = Executors.newSingleThreadExecutor();
+    ConcurrencyRecordingTransaction transaction = new ConcurrencyRecordingTransaction(new JdbcTransaction(ds, null, false));
+    Executor executor = createExecutor(transaction);
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      // rewritten into a multi-row insert, so the connection is first asked for by the flush
+      executor.update(insertStatement, new Author(97, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      CompletableFuture<List<BatchResult>> flush = executor.flushStatementsAsync(flushExecutor);
+      executor.update(updateStatement, new Author(101, "someone", "******", "someone@apache.org", null, Section.NEWS));
+      executor.flushStatements();
+      assertTrue(flush.isDone());
+      assertEquals(1, transaction.maxConcurrentCalls.get());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+      flushExecutor.shutdown();
+    }
+  }
+
   @Override
   protected Executor createExecutor(Transaction transaction) {
     return new BatchExecutor(config, transaction);
   }
+
+  private static class ConcurrencyRecordingTransaction implements Transaction {
+
+    private final Transaction delegate;
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+    private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+
+    ConcurrencyRecordingTransaction(Transaction delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+      try {
+        // widens the window in which another thread could open a second connection
+        Thread.sleep(50);
+        return delegate.getConnection();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException(e);
+      } finally {
+        concurrentCalls.decrementAndGet();
+      }
+    }
+
+    @Override
+    public void commit() throws SQLException {
+      delegate.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+      delegate.rollback();
+    }
+
+    @Override
+    public void close() throws SQLException {
+      delegate.close();
+    }
+
+    @Override
+    public Integer getTimeout() throws SQLException {
+      return delegate.getTimeout();
+    }
+
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  public static class StatementRecorder implements Interceptor {
+
+    private final List<Integer> parameterCounts;
+
+    StatementRecorder(List<Integer> parameterCounts) {
+      this.parameterCounts = parameterCounts;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      parameterCounts.add(((StatementHandler) invocation.getTarget()).getBoundSql().getParameterMappings().size());
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+  }
 }
@@ -28,16 +28,21 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultFlag;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.mapping.SqlCommandType;
@@ -87,7 +92,7 @@ class DefaultResultSetHandlerTest {
     when(rs.getMetaData()).thenReturn(rsmd);
     when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
     when(rs.next()).thenReturn(true).thenReturn(false);
-    when(rs.getInt("CoLuMn1")).thenReturn(100);
+    when(rs.getInt(1)).thenReturn(100);
     when(rsmd.getColumnCount()).thenReturn(1);
     when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
     when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
@@ -129,6 +134,226 @@ class DefaultResultSetHandlerTest {
     }
   }
 
+  @Test
+  void shouldMapRowsWithCompiledRowMapper() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompiledRowMappingEnabled(true);
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    final ResultMap resultMap = new ResultMap.Builder(config, "authorMap", Author.class, Collections.singletonList(
+        new ResultMapping.Builder(config, "id", "AUTHOR_ID", registry.getTypeHandler(int.class)).build())).build();
+    final MappedStatement ms = new MappedStatement.Builder(config, "selectAuthor", new StaticSqlSource(config, "select"),
+        SqlCommandType.SELECT).resultMaps(Collections.singletonList(resultMap)).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+    when(rs.getInt(1)).thenReturn(101).thenReturn(102);
+    when(rs.getString(2)).thenReturn("jim").thenReturn("sally");
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("AUTHOR_ID");
+    when(rsmd.getColumnLabel(2)).thenReturn("username");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(2, results.size());
+    assertEquals(101, ((Author) results.get(0)).getId());
+    assertEquals("jim", ((Author) results.get(0)).getUsername());
+    assertEquals(102, ((Author) results.get(1)).getId());
+    assertEquals("sally", ((Author) results.get(1)).getUsername());
+  }
+
+  @Test
+  void shouldShareMappingPlansAcrossExecutions() throws Exception {
+    final Configuration config = new Configuration();
+    final ResultMap resultMap = new ResultMap.Builder(config, "authorMap", Author.class, new ArrayList<>()).build();
+    final MappedStatement ms = new MappedStatement.Builder(config, "selectAuthor", new StaticSqlSource(config, "select"),
+        SqlCommandType.SELECT).resultMaps(Collections.singletonList(resultMap)).build();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false).thenReturn(true).thenReturn(false);
+    when(rs.getInt(1)).thenReturn(101).thenReturn(102);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("id");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> first = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+    final int plans = config.getAutoMappingPlanCache().getSize();
+    final List<Object> second = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+    assertEquals(101, ((Author) first.get(0)).getId());
+    assertEquals(102, ((Author) second.get(0)).getId());
+    assertEquals(2, plans);
+    assertEquals(plans, config.getAutoMappingPlanCache().getSize());
+  }
+
+  @Test
+  void shouldResolveColumnIndexesForEveryResultSetLayout() throws Exception {
+    final Configuration config = new Configuration();
+    config.setCompiledRowMappingEnabled(true);
+    final ResultMap resultMap = new ResultMap.Builder(config, "authorMap", Author.class, new ArrayList<>()).build();
+    final MappedStatement ms = new MappedStatement.Builder(config, "selectAuthors", new StaticSqlSource(config, "select"),
+        SqlCommandType.SELECT).resultMaps(Arrays.asList(resultMap, resultMap)).build();
+    final ResultSet rs2 = mock(ResultSet.class);
+    final ResultSetMetaData rsmd2 = mock(ResultSetMetaData.class);
+
+    when(stmt.getResultSet()).thenReturn(rs).thenReturn(rs2);
+    when(stmt.getMoreResults()).thenReturn(true).thenReturn(false);
+    when(stmt.getUpdateCount()).thenReturn(-1);
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(true);
+    // first result set: id, username
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false);
+    when(rs.getInt(1)).thenReturn(101);
+    when(rs.getString(2)).thenReturn("first");
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("id");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(rsmd.getColumnLabel(2)).thenReturn("username");
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getCanonicalName());
+    // second result set, same result map: username, id
+    when(rs2.getMetaData()).thenReturn(rsmd2);
+    when(rs2.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs2.next()).thenReturn(true).thenReturn(false);
+    when(rs2.getString(1)).thenReturn("second");
+    when(rs2.getInt(2)).thenReturn(102);
+    when(rsmd2.getColumnCount()).thenReturn(2);
+    when(rsmd2.getColumnLabel(1)).thenReturn("username");
+    when(rsmd2.getColumnType(1)).thenReturn(Types.VARCHAR);
+    when(rsmd2.getColumnClassName(1)).thenReturn(String.class.getCanonicalName());
+    when(rsmd2.getColumnLabel(2)).thenReturn("id");
+    when(rsmd2.getColumnType(2)).thenReturn(Types.INTEGER);
+    when(rsmd2.getColumnClassName(2)).thenReturn(Integer.class.getCanonicalName());
+
+    final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+    assertEquals(2, results.size());
+    final Author first = (Author) ((List<?>) results.get(0)).get(0);
+    final Author second = (Author) ((List<?>) results.get(1)).get(0);
+    assertEquals(101, first.getId());
+    assertEquals("first", first.getUsername());
+    assertEquals(102, second.getId());
+    assertEquals("second", second.getUsername());
+  }
+
+  @Test
+  void shouldStreamNestedResultsToResultHandler() throws Exception {
+    final Configuration config = new Configuration();
+    config.setNestedResultStreamingEnabled(true);
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    config.addResultMap(new ResultMap.Builder(config, "roleMap", String.class, Collections.singletonList(
+        new ResultMapping.Builder(config, null, "role", registry.getTypeHandler(String.class)).build())).build());
+    final ResultMap personMap = new ResultMap.Builder(config, "personMap", Person.class, Arrays.asList(
+        new ResultMapping.Builder(config, "id", "id", registry.getTypeHandler(Integer.class))
+            .flags(Collections.singletonList(ResultFlag.ID)).build(),
+        new ResultMapping.Builder(config, "roles").javaType(List.class).nestedResultMapId("roleMap").build())).build();
+    final MappedStatement ms = new MappedStatement.Builder(config, "selectPerson", new StaticSqlSource(config, "select"),
+        SqlCommandType.SELECT).resultMaps(Collections.singletonList(personMap)).build();
+    final List<String> handled = new ArrayList<>();
+    final ResultHandler<Person> resultHandler = context -> handled.add(
+        context.getResultObject().getId() + "=" + new ArrayList<>(context.getResultObject().getRoles()));
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, resultHandler, null, new RowBounds());
+
+    final Object[][] rows = {{1, "CEO"}, {1, "CTO"}, {2, "CFO"}};
+    final AtomicInteger row = new AtomicInteger(-1);
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenAnswer(invocation -> row.incrementAndGet() < rows.length);
+    when(rs.getInt(1)).thenAnswer(invocation -> rows[row.get()][0]);
+    when(rs.getString(2)).thenAnswer(invocation -> rows[row.get()][1]);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("id");
+    when(rsmd.getColumnLabel(2)).thenReturn("role");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    resultSetHandler.handleResultSets(stmt);
+    // each aggregate is complete when it reaches the handler
+    assertEquals(Arrays.asList("1=[CEO, CTO]", "2=[CFO]"), handled);
+  }
+
+  @Test
+  void shouldResolveColumnLabelsToIndexes() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(3);
+    when(rsmd.getColumnLabel(1)).thenReturn("id");
+    when(rsmd.getColumnLabel(2)).thenReturn("ID");
+    when(rsmd.getColumnLabel(3)).thenReturn("name");
+
+    final ResultSetWrapper rsw = new ResultSetWrapper(rs, new Configuration());
+    assertEquals(1, rsw.getColumnIndex("id"));
+    assertEquals(2, rsw.getColumnIndex("ID"));
+    assertEquals(1, rsw.getColumnIndex("Id"));
+    assertEquals(3, rsw.getColumnIndex("NAME"));
+    assertEquals(-1, rsw.getColumnIndex("missing"));
+    assertEquals(-1, rsw.getColumnIndex(null));
+  }
+
+  @Test
+  void shouldMapRowsInParallelInOrder() throws Exception {
+    final Configuration config = new Configuration();
+    config.setParallelRowMappingEnabled(true);
+    config.setParallelRowMappingBatchSize(64);
+    final AtomicInteger submittedBatches = new AtomicInteger();
+    config.setParallelRowMappingExecutor(command -> {
+      submittedBatches.incrementAndGet();
+      ForkJoinPool.commonPool().execute(command);
+    });
+    final ResultMap resultMap = new ResultMap.Builder(config, "authorMap", Author.class, new ArrayList<>()).build();
+    final MappedStatement ms = new MappedStatement.Builder(config, "selectAuthor", new StaticSqlSource(config, "select"),
+        SqlCommandType.SELECT).resultMaps(Collections.singletonList(resultMap)).build();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 1000));
+    final AtomicInteger row = new AtomicInteger();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenAnswer(invocation -> row.incrementAndGet() <= 2000);
+    when(rs.getInt(1)).thenAnswer(invocation -> row.get());
+    when(rs.getString(2)).thenAnswer(invocation -> "user" + row.get());
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("id");
+    when(rsmd.getColumnLabel(2)).thenReturn("username");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(1000, results.size());
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(i + 1, ((Author) results.get(i)).getId());
+      assertEquals("user" + (i + 1), ((Author) results.get(i)).getUsername());
+    }
+    assertEquals(1000, row.get());
+    assertEquals(16, submittedBatches.get());
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
@@ -144,4 +369,25 @@ class DefaultResultSetHandlerTest {
         }).build();
   }
 
+  public static class Person {
+    private Integer id;
+    private List<String> roles;
+
+    public Integer getId() {
+      return id;
+    }
+
+    public void setId(Integer id) {
+      this.id = id;
+    }
+
+    public List<String> getRoles() {
+      return roles;
+    }
+
+    public void setRoles(List<String> roles) {
+      this.roles = roles;
+    }
+  }
+
 }
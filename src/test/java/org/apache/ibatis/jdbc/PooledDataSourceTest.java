@@ -22,12 +22,18 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolMetrics;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.pooled.StatementCacheMetrics;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -75,6 +81,247 @@ class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldProperlyMaintainLockFreePoolOf3ActiveAnd2IdleConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFreeEnabled(true);
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldShareLockFreePoolBetweenThreads() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFreeEnabled(true);
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolTimeToWait(1000);
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 50; j++) {
+            try (Connection c = ds.getConnection()) {
+              c.getMetaData();
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+      assertEquals(400, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldClaimOverdueConnectionInLockFreePool() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFreeEnabled(true);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(50);
+      ds.setPoolTimeToWait(20);
+      Connection overdue = ds.getConnection();
+      Thread.sleep(100);
+      Connection claimed = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertThrows(SQLException.class, overdue::getMetaData);
+      overdue.close();
+      claimed.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldMaintainIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolMaximumIdleTime(100);
+      ds.setPoolMaintenanceInterval(20);
+      waitForIdleConnectionCount(ds, 2);
+
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        connections.add(ds.getConnection());
+      }
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertTrue(ds.getPoolState().getIdleConnectionCount() >= 4);
+      waitForIdleConnectionCount(ds, 2);
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictConnectionsPastMaximumLifetimeInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLockFreeEnabled(true);
+      ds.setPoolMaximumConnectionLifetime(50);
+      ds.setPoolMaintenanceInterval(20);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      waitForIdleConnectionCount(ds, 0);
+      assertTrue(realConnection.isClosed());
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldTrackCheckoutsAndLeaks() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    PoolMetrics metrics = new PoolMetrics(ds.getPoolState());
+    try {
+      ds.setPoolMetricsTracker(metrics);
+      ds.setPoolLeakDetectionThreshold(50);
+      for (int i = 0; i < 10; i++) {
+        ds.getConnection().close();
+      }
+      assertEquals(10, metrics.getCheckoutTimeHistogram().getCount());
+      assertEquals(10, metrics.getUsageTimeHistogram().getCount());
+
+      Connection leaked = ds.getConnection();
+      long deadline = System.currentTimeMillis() + 5000;
+      while (metrics.getLeakCount() == 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, metrics.getLeakCount());
+      assertEquals(1, metrics.getActiveConnectionCount());
+      StackTraceElement[] trace = metrics.getRecentLeaks().get(0).getStackTrace();
+      assertTrue(Arrays.stream(trace).anyMatch(e -> e.getMethodName().equals("shouldTrackCheckoutsAndLeaks")));
+      leaked.close();
+      assertEquals(11, metrics.getUsageTimeHistogram().getCount());
+    } finally {
+      ds.setPoolLeakDetectionThreshold(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReusePreparedStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      runScript(ds, JPETSTORE_DATA);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(2);
+      StatementCacheMetrics metrics = ds.getPoolState().getStatementCacheMetrics();
+      for (int i = 0; i < 3; i++) {
+        try (Connection c = ds.getConnection();
+             PreparedStatement st = c.prepareStatement("SELECT COUNT(*) FROM PRODUCT WHERE PRODUCTID = ?")) {
+          st.setString(1, "FI-SW-01");
+          try (ResultSet rs = st.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+          }
+          assertSame(c, st.getConnection());
+        }
+      }
+      assertEquals(2, metrics.getHitCount());
+      assertEquals(1, metrics.getMissCount());
+      assertEquals(2, metrics.getStatementStatistics("SELECT COUNT(*) FROM PRODUCT WHERE PRODUCTID = ?").getHitCount());
+
+      try (Connection c = ds.getConnection()) {
+        c.prepareStatement("SELECT * FROM PRODUCT").close();
+        c.prepareStatement("SELECT * FROM CATEGORY").close();
+      }
+      assertEquals(1, metrics.getEvictionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldResetCachedPreparedStatementsBetweenCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      runScript(ds, JPETSTORE_DATA);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(2);
+      StatementCacheMetrics metrics = ds.getPoolState().getStatementCacheMetrics();
+      String sql = "SELECT PRODUCTID FROM PRODUCT";
+      PreparedStatement realStatement;
+      try (Connection c = ds.getConnection()) {
+        PreparedStatement st = c.prepareStatement(sql);
+        st.setMaxFieldSize(10);
+        st.setPoolable(false);
+        ResultSet rs = st.executeQuery();
+        st.close();
+        assertTrue(rs.isClosed());
+      }
+      try (Connection c = ds.getConnection()) {
+        PreparedStatement st = c.prepareStatement(sql);
+        assertEquals(0, st.getMaxFieldSize());
+        assertTrue(st.isPoolable());
+        realStatement = st.unwrap(PreparedStatement.class);
+        st.close();
+      }
+      // closed by the driver while idle
+      realStatement.close();
+      try (Connection c = ds.getConnection();
+           PreparedStatement st = c.prepareStatement(sql);
+           ResultSet rs = st.executeQuery()) {
+        assertTrue(rs.next());
+      }
+      assertEquals(1, metrics.getHitCount());
+      assertEquals(2, metrics.getMissCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private void waitForIdleConnectionCount(PooledDataSource ds, int expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (ds.getPoolState().getIdleConnectionCount() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, ds.getPoolState().getIdleConnectionCount());
+  }
+
   @Test
   void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -18,6 +18,7 @@ package org.apache.ibatis.reflection;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
@@ -218,4 +219,78 @@ class ReflectorTest {
     Reflector reflector = reflectorFactory.findForClass(Bean.class);
     assertTrue((Boolean)reflector.getGetInvoker("bool").invoke(new Bean(), new Byte[0]));
   }
+
+  @Test
+  void shouldWritePropertiesThroughSetterHandles() throws Throwable {
+    class Bean {
+      private int id;
+      private String name;
+
+      public void setId(int id) {
+        this.id = id;
+      }
+    }
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getSetterHandle("id").invoke(bean, (Object) 7);
+    reflector.getSetterHandle("name").invoke(bean, (Object) "foo");
+    assertEquals(7, bean.id);
+    assertEquals("foo", bean.name);
+    assertThrows(ReflectionException.class, () -> reflector.getSetterHandle("missing"));
+  }
+
+  @Test
+  void shouldRejectMismatchedArgumentsAsBeforeMethodHandles() throws Exception {
+    class Bean {
+      private int id;
+      private String name;
+
+      public void setId(int id) {
+        this.id = id;
+      }
+
+      public void setName(String name) {
+        throw new ClassCastException("thrown by the setter");
+      }
+    }
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    assertThrows(IllegalArgumentException.class, () -> reflector.getSetInvoker("id").invoke(bean, new Object[] {"1"}));
+    assertThrows(IllegalArgumentException.class, () -> reflector.getSetInvoker("name").invoke(bean, new Object[] {1}));
+    InvocationTargetException e = assertThrows(InvocationTargetException.class,
+        () -> reflector.getSetInvoker("name").invoke(bean, new Object[] {"foo"}));
+    assertEquals("thrown by the setter", e.getCause().getMessage());
+    // widening is still applied
+    reflector.getSetInvoker("id").invoke(bean, new Object[] {(short) 3});
+    assertEquals(3, bean.id);
+  }
+
+  @Test
+  void shouldInvokeAccessorsThroughMethodHandles() throws Exception {
+    class Bean {
+      private final String fixed = "fixed";
+      private long count;
+      private String name;
+
+      private String getName() {
+        return name;
+      }
+
+      public Bean setName(String name) {
+        this.name = name;
+        return this;
+      }
+    }
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getSetInvoker("name").invoke(bean, new Object[] {"foo"});
+    reflector.getSetInvoker("count").invoke(bean, new Object[] {3L});
+    assertEquals("foo", reflector.getGetInvoker("name").invoke(bean, new Object[0]));
+    assertEquals(3L, reflector.getGetInvoker("count").invoke(bean, new Object[0]));
+    assertEquals("fixed", reflector.getGetInvoker("fixed").invoke(bean, new Object[0]));
+    assertThrows(IllegalArgumentException.class, () -> reflector.getSetInvoker("count").invoke(bean, new Object[] {null}));
+  }
 }
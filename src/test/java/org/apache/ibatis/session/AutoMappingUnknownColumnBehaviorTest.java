@@ -123,6 +123,20 @@ class AutoMappingUnknownColumnBehaviorTest {
         }
     }
 
+    @Test
+    void warningOnEveryExecutionSharingTheMappingPlan() {
+        sqlSessionFactory.getConfiguration().setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.WARNING);
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            session.getMapper(Mapper.class).selectSimpleAuthor(101);
+        }
+        LastEventSavedAppender.event = null;
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            session.getMapper(Mapper.class).selectSimpleAuthor(101);
+            assertThat(LastEventSavedAppender.event).isNotNull();
+            assertThat(LastEventSavedAppender.event.getMessage().toString()).isEqualTo("Unknown column is detected on 'org.apache.ibatis.session.AutoMappingUnknownColumnBehaviorTest$Mapper.selectSimpleAuthor' auto-mapping. Mapping parameters are [columnName=ID,propertyName=id,propertyType=java.util.concurrent.atomic.AtomicInteger]");
+        }
+    }
+
     @Test
     void failingCauseByUnknownColumn() {
         sqlSessionFactory.getConfiguration().setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.FAILING);
@@ -0,0 +1,144 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class AsyncMapperTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static volatile CyclicBarrier barrier;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_mapper/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(new QueryBarrier());
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_mapper/CreateDB.sql");
+  }
+
+  @Test
+  void shouldRunIndependentQueriesInParallel() throws Exception {
+    int executions = CountingExecutor.executions.get();
+    // each query waits until the other one is running too
+    barrier = new CyclicBarrier(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      CompletableFuture<User> user = mapper.getUser(2);
+      CompletableFuture<List<User>> users = mapper.getUsers();
+      CompletableFuture.allOf(user, users).get(10, TimeUnit.SECONDS);
+      assertEquals("User2", user.get().getName());
+      assertEquals(5, users.get().size());
+    } finally {
+      barrier = null;
+    }
+    assertEquals(executions + 2, CountingExecutor.executions.get());
+  }
+
+  @Test
+  void shouldRunOnADedicatedPoolByDefault() throws Exception {
+    Configuration configuration = new Configuration();
+    CompletableFuture<String> threadName = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(),
+        configuration.getAsyncMapperExecutor());
+    assertTrue(threadName.get(5, TimeUnit.SECONDS).startsWith("mybatis-async-mapper-"));
+  }
+
+  @Test
+  void shouldCommitUpdatesInTheirOwnSession() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = new User();
+      user.setId(6);
+      user.setName("User6");
+      assertEquals(Integer.valueOf(1), sqlSession.getMapper(Mapper.class).insertUser(user).get(5, TimeUnit.SECONDS));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User6", sqlSession.getMapper(Mapper.class).getUser(6).get(5, TimeUnit.SECONDS).getName());
+    }
+  }
+
+  @Test
+  void shouldCompleteExceptionallyWhenTheStatementFails() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      CompletableFuture<User> future = sqlSession.getMapper(Mapper.class).getMissing();
+      ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof PersistenceException);
+      assertTrue(future.isCompletedExceptionally());
+    }
+  }
+
+  @Test
+  void shouldRejectCursorsInFutures() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThrows(BindingException.class, mapper::getUserCursor);
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }))
+  public static class QueryBarrier implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      CyclicBarrier currentBarrier = barrier;
+      if (currentBarrier != null) {
+        currentBarrier.await(5, TimeUnit.SECONDS);
+      }
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+  }
+
+}
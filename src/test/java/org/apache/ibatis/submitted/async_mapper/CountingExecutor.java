@@ -0,0 +1,39 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_mapper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CountingExecutor implements Executor {
+
+  static final AtomicInteger executions = new AtomicInteger();
+
+  private static final ExecutorService delegate = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "async-mapper-test");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @Override
+  public void execute(Runnable command) {
+    executions.incrementAndGet();
+    delegate.execute(command);
+  }
+
+}
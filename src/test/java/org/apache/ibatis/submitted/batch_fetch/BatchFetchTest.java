@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_fetch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchFetchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static final List<String> statements = new ArrayList<>();
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_fetch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(new StatementRecorder());
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_fetch/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void clearStatements() {
+    statements.clear();
+  }
+
+  @Test
+  void shouldLoadAssociationsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectBlogs();
+      assertEquals(1, statements.size());
+
+      assertEquals("jim", blogs.get(0).getAuthor().getName());
+      assertEquals(2, statements.size());
+      assertEquals("sally", blogs.get(1).getAuthor().getName());
+      assertEquals(2, statements.size());
+
+      // authors 1 and 2 were loaded with the first batch
+      assertEquals("bob", blogs.get(2).getAuthor().getName());
+      assertEquals(3, statements.size());
+      assertEquals("jim", blogs.get(3).getAuthor().getName());
+      assertEquals("sally", blogs.get(4).getAuthor().getName());
+      assertEquals(3, statements.size());
+    }
+  }
+
+  @Test
+  void shouldLoadCollectionsWithOneQuery() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectBlogs();
+
+      assertEquals(2, blogs.get(0).getPosts().size());
+      assertEquals("post 2", blogs.get(0).getPosts().get(1).getSubject());
+      assertEquals(1, blogs.get(1).getPosts().size());
+      assertEquals(0, blogs.get(2).getPosts().size());
+      assertEquals(1, blogs.get(3).getPosts().size());
+      assertEquals(0, blogs.get(4).getPosts().size());
+      assertEquals(2, statements.size());
+    }
+  }
+
+  @Test
+  void shouldLoadEagerNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectBlogsEagerly();
+      // 1 select of the blogs, 2 of the 3 distinct authors (2 per batch) and 1 of the posts
+      assertEquals(4, statements.size());
+
+      assertEquals("jim", blogs.get(0).getAuthor().getName());
+      assertEquals("sally", blogs.get(1).getAuthor().getName());
+      assertEquals("bob", blogs.get(2).getAuthor().getName());
+      assertEquals("jim", blogs.get(3).getAuthor().getName());
+      assertEquals("sally", blogs.get(4).getAuthor().getName());
+      assertEquals(2, blogs.get(0).getPosts().size());
+      assertEquals(0, blogs.get(2).getPosts().size());
+      assertEquals("post 4", blogs.get(3).getPosts().get(0).getSubject());
+      assertEquals(4, statements.size());
+    }
+  }
+
+  @Test
+  void shouldResolveCyclicEagerNestedSelects() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectBlogsWithCyclicAuthors();
+      assertEquals(5, blogs.size());
+
+      Author jim = blogs.get(0).getAuthor();
+      assertEquals("jim", jim.getName());
+      assertEquals(2, jim.getBlogs().size());
+      assertEquals("blog 4", jim.getBlogs().get(1).getTitle());
+      assertEquals("jim", jim.getBlogs().get(1).getAuthor().getName());
+      assertEquals("bob", blogs.get(2).getAuthor().getName());
+      assertEquals(1, blogs.get(2).getAuthor().getBlogs().size());
+      assertEquals("sally", blogs.get(4).getAuthor().getBlogs().get(0).getAuthor().getName());
+    }
+  }
+
+  @Test
+  void shouldLoadEagerNestedSelectsRowByRowForResultHandlers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<String> authors = new ArrayList<>();
+      sqlSession.select("org.apache.ibatis.submitted.batch_fetch.Mapper.selectBlogsEagerly",
+          context -> authors.add(((Blog) context.getResultObject()).getAuthor().getName()));
+      assertEquals(Arrays.asList("jim", "sally", "bob", "jim", "sally"), authors);
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+  public static class StatementRecorder implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      statements.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+  }
+
+}
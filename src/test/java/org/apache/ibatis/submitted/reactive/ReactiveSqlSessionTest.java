@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.reactive.DefaultReactiveSqlSession;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+class ReactiveSqlSessionTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static DefaultReactiveSqlSession reactiveSession;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/reactive/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/reactive/CreateDB.sql");
+    reactiveSession = new DefaultReactiveSqlSession(sqlSessionFactory, 2);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    reactiveSession.close();
+  }
+
+  @Test
+  void shouldStreamRowsAsTheyAreRequested() throws Exception {
+    RecordingSubscriber<User> subscriber = new RecordingSubscriber<>(3);
+    reactiveSession.<User>selectMany("org.apache.ibatis.submitted.reactive.Mapper.selectUsers").subscribe(subscriber);
+    List<User> users = subscriber.completion.get(5, TimeUnit.SECONDS);
+    assertEquals(7, users.size());
+    assertEquals("User1", users.get(0).getName());
+    assertEquals("User7", users.get(6).getName());
+    // rows were requested three at a time, and never read on the test thread
+    assertEquals(3, subscriber.requests);
+    assertTrue(subscriber.threads.stream().allMatch(name -> name.startsWith("mybatis-reactive-")));
+    assertNotEquals(Thread.currentThread().getName(), subscriber.threads.get(0));
+  }
+
+  @Test
+  void shouldStopReadingWhenCancelled() throws Exception {
+    RecordingSubscriber<User> subscriber = new RecordingSubscriber<User>(1) {
+      @Override
+      public void onNext(User user) {
+        super.onNext(user);
+        if (items.size() == 2) {
+          subscription.cancel();
+          completion.complete(items);
+        }
+      }
+    };
+    reactiveSession.<User>selectMany("org.apache.ibatis.submitted.reactive.Mapper.selectUsers").subscribe(subscriber);
+    assertEquals(2, subscriber.completion.get(5, TimeUnit.SECONDS).size());
+  }
+
+  @Test
+  void shouldSelectOneAndUpdate() throws Exception {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 5);
+    parameter.put("name", "Updated");
+    RecordingSubscriber<Integer> updated = new RecordingSubscriber<>(Long.MAX_VALUE);
+    reactiveSession.update("org.apache.ibatis.submitted.reactive.Mapper.updateUserName", parameter).subscribe(updated);
+    assertEquals(Integer.valueOf(1), updated.completion.get(5, TimeUnit.SECONDS).get(0));
+
+    RecordingSubscriber<User> selected = new RecordingSubscriber<>(1);
+    Publisher<User> user = reactiveSession.selectOne("org.apache.ibatis.submitted.reactive.Mapper.selectUser", 5);
+    user.subscribe(selected);
+    assertEquals("Updated", selected.completion.get(5, TimeUnit.SECONDS).get(0).getName());
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User committed = sqlSession.selectOne("org.apache.ibatis.submitted.reactive.Mapper.selectUser", 5);
+      assertEquals("Updated", committed.getName());
+    }
+  }
+
+  @Test
+  void shouldCompleteEmptyWhenNoRowIsFound() throws Exception {
+    RecordingSubscriber<User> subscriber = new RecordingSubscriber<>(1);
+    reactiveSession.<User>selectOne("org.apache.ibatis.submitted.reactive.Mapper.selectUser", 99).subscribe(subscriber);
+    assertTrue(subscriber.completion.get(5, TimeUnit.SECONDS).isEmpty());
+  }
+
+  private static class RecordingSubscriber<T> implements Subscriber<T> {
+
+    final CompletableFuture<List<T>> completion = new CompletableFuture<>();
+    final List<T> items = new ArrayList<>();
+    final List<String> threads = new ArrayList<>();
+    private final long batchSize;
+    Subscription subscription;
+    int requests;
+
+    RecordingSubscriber(long batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+      request();
+    }
+
+    @Override
+    public void onNext(T item) {
+      items.add(item);
+      threads.add(Thread.currentThread().getName());
+      if (items.size() % batchSize == 0) {
+        request();
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      completion.complete(items);
+    }
+
+    private void request() {
+      requests++;
+      subscription.request(batchSize);
+    }
+  }
+
+}
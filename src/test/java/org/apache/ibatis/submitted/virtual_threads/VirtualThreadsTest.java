@@ -0,0 +1,161 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.virtual_threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs thousands of sessions on virtual threads against a small pool and checks with JFR that no thread was pinned
+ * to its carrier by a MyBatis monitor. Virtual threads and JFR are looked up reflectively because the build targets
+ * Java 8; the test is skipped on runtimes older than 21.
+ */
+class VirtualThreadsTest {
+
+  private static final int SESSIONS = 2000;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/virtual_threads/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/virtual_threads/CreateDB.sql");
+  }
+
+  @Test
+  void shouldNotPinVirtualThreads() throws Exception {
+    Method newVirtualThreadExecutor;
+    try {
+      newVirtualThreadExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      newVirtualThreadExecutor = null;
+    }
+    Assumptions.assumeTrue(newVirtualThreadExecutor != null, "virtual threads are not available");
+
+    PinnedEventRecorder recorder = new PinnedEventRecorder();
+    List<String> pinnedAt;
+    ExecutorService executor = (ExecutorService) newVirtualThreadExecutor.invoke(null);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < SESSIONS; i++) {
+        final int id = i % 5 + 1;
+        futures.add(executor.submit(() -> {
+          try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            String name = sqlSession.getMapper(Mapper.class).getUser(id).getName();
+            // keep the connection a little longer so that other threads have to wait for the pool
+            Thread.sleep(1);
+            sqlSession.commit();
+            return name;
+          }
+        }));
+      }
+      for (int i = 0; i < SESSIONS; i++) {
+        assertEquals("User" + (i % 5 + 1), futures.get(i).get(1, TimeUnit.MINUTES));
+      }
+    } finally {
+      executor.shutdown();
+      pinnedAt = recorder.stop();
+    }
+    assertTrue(pinnedAt.isEmpty(), "Virtual threads were pinned at " + pinnedAt);
+  }
+
+  /**
+   * Records {@code jdk.VirtualThreadPinned} events through the JFR API, accessed reflectively.
+   */
+  private static class PinnedEventRecorder {
+
+    private final Object recording;
+
+    PinnedEventRecorder() throws Exception {
+      Class<?> recordingType = Class.forName("jdk.jfr.Recording");
+      recording = recordingType.getConstructor().newInstance();
+      Object settings = recordingType.getMethod("enable", String.class).invoke(recording, "jdk.VirtualThreadPinned");
+      Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class).invoke(settings, Duration.ZERO);
+      recordingType.getMethod("start").invoke(recording);
+    }
+
+    /**
+     * Stops the recording.
+     *
+     * @return the MyBatis methods that were running when a virtual thread got pinned
+     */
+    List<String> stop() throws Exception {
+      Class<?> recordingType = recording.getClass();
+      Path file = Files.createTempFile("mybatis-virtual-threads", ".jfr");
+      try {
+        recordingType.getMethod("stop").invoke(recording);
+        recordingType.getMethod("dump", Path.class).invoke(recording, file);
+        List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+            .getMethod("readAllEvents", Path.class).invoke(null, file);
+        List<String> pinnedAt = new ArrayList<>();
+        for (Object event : events) {
+          String frame = topApplicationFrame(event);
+          if (frame != null && frame.startsWith("org.apache.ibatis.")) {
+            pinnedAt.add(frame);
+          }
+        }
+        return pinnedAt;
+      } finally {
+        recordingType.getMethod("close").invoke(recording);
+        Files.deleteIfExists(file);
+      }
+    }
+
+    private static String topApplicationFrame(Object event) throws Exception {
+      Object stackTrace = invoke(event, "getStackTrace");
+      if (stackTrace == null) {
+        return null;
+      }
+      for (Object frame : (List<?>) invoke(stackTrace, "getFrames")) {
+        Object method = invoke(frame, "getMethod");
+        String type = (String) invoke(invoke(method, "getType"), "getName");
+        if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+          return type + "." + invoke(method, "getName");
+        }
+      }
+      return null;
+    }
+
+    private static Object invoke(Object target, String name) throws Exception {
+      return target.getClass().getMethod(name).invoke(target);
+    }
+  }
+
+}